@@ -1,14 +1,19 @@
 package cs5004.animator;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Objects;
 
 import cs5004.animator.controller.AnimationController;
 import cs5004.animator.controller.Features;
+import cs5004.animator.model.canvas.AnimationCache;
 import cs5004.animator.model.canvas.ICanvasModel;
+import cs5004.animator.model.canvas.ProgressiveLoader;
+import cs5004.animator.util.AnimationReader;
 import cs5004.animator.view.IView;
 import cs5004.animator.view.ViewFactory;
 import cs5004.animator.view.ViewFactoryImpl;
+import cs5004.animator.view.text.AbstractTextualView;
 import cs5004.animator.view.visual.InteractiveView;
 
 /**
@@ -26,28 +31,62 @@ public final class EasyAnimator {
     String viewType = null;
     int delay = 1000;
     String outFile = null;
+    boolean progressive = false;
+    boolean useCache = true;
+    boolean clearCache = false;
+    boolean deferChecks = false;
+    int compressionLevel = AbstractTextualView.DEFAULT_COMPRESSION_LEVEL;
 
     for (int i = 0; i < args.length; i++) {
       if (args[i].equals("-in")) {
-        inFile = "input/" + args[i + 1];
+        // "-" reads standard input
+        inFile =
+            args[i + 1].equals(AnimationReader.STANDARD_INPUT)
+                ? args[i + 1]
+                : "input/" + args[i + 1];
       } else if (args[i].equals("-view")) {
         viewType = args[i + 1];
       } else if (args[i].equals("-out")) {
         outFile = "output/" + args[i + 1];
       } else if (args[i].equals("-speed")) {
         delay = 1000 / Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("-progressive")) {
+        progressive = true;
+      } else if (args[i].equals("-nocache")) {
+        useCache = false;
+      } else if (args[i].equals("-clearcache")) {
+        clearCache = true;
+      } else if (args[i].equals("-deferchecks")) {
+        deferChecks = true;
+      } else if (args[i].equals("-compression")) {
+        // gzip level of .svgz output files
+        Integer level = parseCompressionLevel(args, i);
+        if (level == null) {
+          System.out.println("Usage: -compression takes a level from 0 to 9.");
+          return;
+        }
+        compressionLevel = level;
       }
     }
 
-    ICanvasModel.Builder builder = null;
-    try {
-      builder = new ICanvasModel.Builder(inFile);
-    } catch (FileNotFoundException | NullPointerException e) {
-      System.out.println("Input file not found!");
-      e.printStackTrace();
+    AnimationCache cache =
+        new AnimationCache(AnimationCache.DEFAULT_DIRECTORY, AnimationCache.DEFAULT_MAX_SIZE);
+    if (clearCache) {
+      try {
+        cache.clear();
+      } catch (IOException e) {
+        System.out.println("Could not clear the cache!");
+        e.printStackTrace();
+      }
+      if (inFile == null) {
+        return;
+      }
     }
-    ViewFactory factory = new ViewFactoryImpl(Objects.requireNonNull(builder).getCanvas());
-    IView view = factory.create(viewType, outFile, delay);
+    ViewFactory factory =
+        progressive
+            ? loadProgressively(inFile)
+            : load(inFile, useCache ? cache : null, deferChecks);
+    IView view = factory.create(viewType, outFile, delay, compressionLevel);
     if (viewType.equals("playback")) {
       try {
         Features controller = new AnimationController((InteractiveView) view);
@@ -56,4 +95,61 @@ public final class EasyAnimator {
       }
     }
   }
+
+  /**
+   * Parse the value of a -compression argument.
+   *
+   * @param args the arguments passed to the animation.
+   * @param i the index of the -compression argument.
+   * @return the compression level, or null if the value is missing or not a level from 0 to 9.
+   */
+  private static Integer parseCompressionLevel(String[] args, int i) {
+    if (i + 1 >= args.length) {
+      return null;
+    }
+    try {
+      int level = Integer.parseInt(args[i + 1]);
+      return level >= 0 && level <= 9 ? level : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Read the whole input file, then create a view factory for it.
+   *
+   * @param inFile the input file to read from.
+   * @param cache the cache of parsed animations, or null to always parse the file.
+   * @param deferChecks true to report every conflicting motion after reading the file, instead of
+   *     stopping at the first one.
+   * @return the view factory for the animation.
+   */
+  private static ViewFactory load(String inFile, AnimationCache cache, boolean deferChecks) {
+    ICanvasModel.Builder builder = null;
+    try {
+      builder = new ICanvasModel.Builder(inFile, cache, deferChecks);
+    } catch (FileNotFoundException | NullPointerException e) {
+      System.out.println("Input file not found!");
+      e.printStackTrace();
+    }
+    return new ViewFactoryImpl(Objects.requireNonNull(builder).getCanvas());
+  }
+
+  /**
+   * Start reading the input file in the background, and create a view factory that can play the
+   * animation while it is read.
+   *
+   * @param inFile the input file to read from.
+   * @return the view factory for the animation.
+   */
+  private static ViewFactory loadProgressively(String inFile) {
+    ProgressiveLoader loader = null;
+    try {
+      loader = new ProgressiveLoader(inFile);
+    } catch (FileNotFoundException | NullPointerException e) {
+      System.out.println("Input file not found!");
+      e.printStackTrace();
+    }
+    return new ViewFactoryImpl(Objects.requireNonNull(loader));
+  }
 }
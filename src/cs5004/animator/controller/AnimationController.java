@@ -53,6 +53,11 @@ public class AnimationController implements Features {
     view.saveFile(".svg");
   }
 
+  @Override
+  public void saveAsSVGZ() {
+    view.saveFile(".svgz");
+  }
+
   @Override
   public void saveAsTxt() {
     view.saveFile(".txt");
@@ -26,5 +26,8 @@ public interface Features {
 
   void saveAsSVG();
 
+  /** Save the animation as SVG compressed with gzip. */
+  void saveAsSVGZ();
+
   void saveAsTxt();
 }
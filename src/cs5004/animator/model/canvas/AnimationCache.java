@@ -0,0 +1,218 @@
+package cs5004.animator.model.canvas;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import cs5004.animator.util.AnimationReader;
+
+/**
+ * On-disk cache of parsed animations. An entry is a compiled animation named after the SHA-256
+ * hash of the text file it was parsed from, so a file with the same content is loaded from the
+ * cache without being parsed again, whatever its name. Hashing a file is much faster than parsing
+ * it, but still reads all of it.
+ *
+ * <p>The cache is bounded in size: after an entry is stored, the least recently used entries are
+ * deleted until the cache fits. Entries are written to a temporary file first and then renamed,
+ * so several programs can share a cache directory. The cache is only an optimization: if an entry
+ * cannot be stored, the parsed animation is still returned.
+ */
+public final class AnimationCache {
+  /** Default directory of the cache. */
+  public static final Path DEFAULT_DIRECTORY =
+      Paths.get(System.getProperty("user.home"), ".easyanimator", "cache");
+  /** Default maximum total size of the cache entries, in bytes. */
+  public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+  private static final String EXTENSION = ".anim";
+
+  private final Path directory;
+  private final long maxSize;
+
+  /**
+   * Create a cache in a directory, which is created when the first entry is stored.
+   *
+   * @param directory the directory that holds the entries.
+   * @param maxSize the maximum total size of the entries, in bytes.
+   * @throws IllegalArgumentException if the maximum size is negative.
+   */
+  public AnimationCache(Path directory, long maxSize) throws IllegalArgumentException {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("Cache size cannot be negative.");
+    }
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Load an animation, from the cache if a file with the same content was parsed before, and by
+   * parsing the file otherwise. A parsed animation is stored in the cache.
+   *
+   * @param input the text file to load.
+   * @return the built canvas.
+   * @throws IOException if the file cannot be read.
+   */
+  public ICanvas load(Path input) throws IOException {
+    return this.load(input, false);
+  }
+
+  /**
+   * Load an animation, from the cache if a file with the same content was parsed before, and by
+   * parsing the file otherwise. A parsed animation is stored in the cache.
+   *
+   * @param input the text file to load.
+   * @param deferChecks true to check the parsed motions for conflicts after the whole file is read.
+   * @return the built canvas.
+   * @throws IOException if the file cannot be read.
+   */
+  ICanvas load(Path input, boolean deferChecks) throws IOException {
+    BasicFileAttributes before = Files.readAttributes(input, BasicFileAttributes.class);
+    Path entry = this.directory.resolve(hash(input) + EXTENSION);
+    ICanvas cached = null;
+    try {
+      cached = CompiledAnimationFile.read(entry);
+    } catch (NoSuchFileException e) {
+      // not cached yet
+    } catch (IOException e) {
+      // a damaged entry is replaced below
+    }
+    if (cached != null) {
+      try {
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      } catch (IOException e) {
+        // the entry is still valid; it only loses its place in the eviction order
+      }
+      return cached;
+    }
+    ICanvas canvas = AnimationReader.parseFile(input, new ICanvasModel.Builder(deferChecks));
+    BasicFileAttributes after = Files.readAttributes(input, BasicFileAttributes.class);
+    // a file that changed while it was read may not match its hash
+    if (before.size() == after.size()
+        && before.lastModifiedTime().equals(after.lastModifiedTime())) {
+      this.store(canvas, entry);
+    }
+    return canvas;
+  }
+
+  /**
+   * Delete every entry of the cache.
+   *
+   * @throws IOException if the cache directory cannot be read.
+   */
+  public void clear() throws IOException {
+    for (Path entry : this.entries()) {
+      Files.deleteIfExists(entry);
+    }
+  }
+
+  /**
+   * Write an entry, then evict entries until the cache fits in its maximum size.
+   *
+   * @param canvas the canvas to store.
+   * @param entry the file of the entry.
+   */
+  private void store(ICanvas canvas, Path entry) {
+    try {
+      Files.createDirectories(this.directory);
+      Path temp = Files.createTempFile(this.directory, "entry", ".tmp");
+      try {
+        CompiledAnimationFile.write(canvas, temp);
+        Files.move(
+            temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      this.evict();
+    } catch (IOException e) {
+      // the cache is only an optimization, so the animation is returned anyway
+    }
+  }
+
+  /**
+   * Delete the least recently used entries until the cache fits in its maximum size.
+   *
+   * @throws IOException if the cache directory cannot be read.
+   */
+  private void evict() throws IOException {
+    HashMap<Path, BasicFileAttributes> attributes = new HashMap<>();
+    long total = 0;
+    for (Path entry : this.entries()) {
+      try {
+        BasicFileAttributes a = Files.readAttributes(entry, BasicFileAttributes.class);
+        attributes.put(entry, a);
+        total += a.size();
+      } catch (NoSuchFileException e) {
+        // deleted by another program sharing the cache
+      }
+    }
+    ArrayList<Path> entries = new ArrayList<>(attributes.keySet());
+    entries.sort(Comparator.comparing(entry -> attributes.get(entry).lastModifiedTime()));
+    for (int i = 0; i < entries.size() && total > this.maxSize; i++) {
+      Files.deleteIfExists(entries.get(i));
+      total -= attributes.get(entries.get(i)).size();
+    }
+  }
+
+  /**
+   * Returns the entries in the cache directory.
+   *
+   * @return the entry files, or an empty list if the directory does not exist.
+   * @throws IOException if the cache directory cannot be read.
+   */
+  private ArrayList<Path> entries() throws IOException {
+    ArrayList<Path> entries = new ArrayList<>();
+    if (!Files.isDirectory(this.directory)) {
+      return entries;
+    }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + EXTENSION)) {
+      for (Path entry : stream) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Returns the SHA-256 hash of the content of a file.
+   *
+   * @param file the file to hash.
+   * @return the hash as hexadecimal digits.
+   * @throws IOException if the file cannot be read.
+   */
+  private static String hash(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,367 @@
+package cs5004.animator.model.canvas;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import cs5004.animator.model.shape.Oval;
+import cs5004.animator.model.shape.Rectangle;
+import cs5004.animator.model.shape.Shape;
+import cs5004.animator.model.transformation.ChangeColorT;
+import cs5004.animator.model.transformation.ChangeVisibilityT;
+import cs5004.animator.model.transformation.FrameSink;
+import cs5004.animator.model.transformation.MoveT;
+import cs5004.animator.model.transformation.ResizeT;
+import cs5004.animator.model.transformation.Transformation;
+import cs5004.animator.model.transformation.TransformationType;
+import cs5004.animator.model.transformation.dimension;
+
+/**
+ * Reads and writes a built canvas in a compact binary format, so that an animation can be loaded
+ * again without parsing its text or checking its transformations for conflicts. The file is made
+ * of fixed-size big-endian records that are read straight from a memory-mapped buffer:
+ *
+ * <ul>
+ *   <li>a header: magic number, version, the canvas bounds, the number of shapes and
+ *       transformations, and the length of the name table;
+ *   <li>the shape table: for each shape in declaration order, its kind, the position of its name
+ *       in the name table, its initial position, size and color, its start and end frame and its
+ *       number of transformations;
+ *   <li>the transformations of every shape, in the order they were added: a kind, the start and
+ *       end frame, and the start and end values;
+ *   <li>the name table: the shape names in UTF-8.
+ * </ul>
+ *
+ * <p>Transformations keep their order, so a loaded canvas has the same text and SVG output as the
+ * canvas that was saved.
+ */
+public final class CompiledAnimationFile {
+  /** The first four bytes of a compiled animation; the first byte is never the start of text. */
+  public static final int MAGIC = 0x89414E49;
+  /** The version of the format that is written. */
+  public static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 9 * 4;
+  private static final int SHAPE_SIZE = 11 * 4;
+  private static final int TRANSFORMATION_SIZE = 7 * 4;
+
+  private static final int RECTANGLE = 0;
+  private static final int ELLIPSE = 1;
+
+  private static final int COLOR = 0;
+  private static final int VISIBILITY = 1;
+  private static final int MOVE = 2;
+  private static final int BASE = 3;
+  private static final int HEIGHT = 4;
+
+  /** This class only has static methods. */
+  private CompiledAnimationFile() {}
+
+  /**
+   * Determine if a file holds a compiled animation.
+   *
+   * @param file the file to check.
+   * @return true if the file starts with the magic number, false otherwise.
+   * @throws IOException if the file cannot be read.
+   */
+  public static boolean isCompiled(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer start = ByteBuffer.allocate(4);
+      while (start.hasRemaining() && channel.read(start) >= 0) {
+        // keep reading until the magic number is complete or the file ends
+      }
+      return !start.hasRemaining() && start.getInt(0) == MAGIC;
+    }
+  }
+
+  /**
+   * Write a built canvas to a file.
+   *
+   * @param canvas the canvas, after its frames have been set.
+   * @param file the file to write.
+   * @throws IOException if the file cannot be written.
+   * @throws IllegalArgumentException if a transformation is not one of the built-in types.
+   */
+  public static void write(ICanvas canvas, Path file)
+      throws IOException, IllegalArgumentException {
+    ArrayList<Shape> shapes = canvas.getInitialShapes();
+    ArrayList<byte[]> names = new ArrayList<>();
+    int namesLength = 0;
+    int transformationCount = 0;
+    for (Shape s : shapes) {
+      byte[] name = s.getIdentifier().getBytes(StandardCharsets.UTF_8);
+      names.add(name);
+      namesLength += name.length;
+      transformationCount += s.getTransformations().size();
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(canvas.getLeftMostX());
+      out.writeInt(canvas.getTopMostY());
+      out.writeInt(canvas.getBorderWidth());
+      out.writeInt(canvas.getBorderHeight());
+      out.writeInt(shapes.size());
+      out.writeInt(transformationCount);
+      out.writeInt(namesLength);
+      int nameOffset = 0;
+      for (int i = 0; i < shapes.size(); i++) {
+        Shape s = shapes.get(i);
+        out.writeInt(s instanceof Oval ? ELLIPSE : RECTANGLE);
+        out.writeInt(nameOffset);
+        out.writeInt(names.get(i).length);
+        out.writeFloat(s.getPosition().getX());
+        out.writeFloat(s.getPosition().getY());
+        out.writeFloat(s.getBase());
+        out.writeFloat(s.getHeight());
+        out.writeInt(s.getColor().getRGB() & 0xFFFFFF);
+        out.writeFloat(s.getStartFrame());
+        out.writeFloat(s.getEndFrame());
+        out.writeInt(s.getTransformations().size());
+        nameOffset += names.get(i).length;
+      }
+      Values values = new Values();
+      for (Shape s : shapes) {
+        for (Transformation t : s.getTransformations()) {
+          values.write(t, out);
+        }
+      }
+      for (byte[] name : names) {
+        out.write(name);
+      }
+    }
+  }
+
+  /**
+   * Load a canvas from a compiled animation. The canvas is ready to be played, like one that the
+   * Builder has read and built.
+   *
+   * @param file the file to read.
+   * @return the loaded canvas.
+   * @throws IOException if the file cannot be read or is not a valid compiled animation.
+   */
+  public static ICanvas read(Path file) throws IOException {
+    ByteBuffer in;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Compiled animation is too large: " + file);
+      }
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (in.limit() < HEADER_SIZE || in.getInt(0) != MAGIC) {
+      throw new IOException("Not a compiled animation: " + file);
+    }
+    if (in.getInt(4) != VERSION) {
+      throw new IOException("Unsupported compiled animation version: " + in.getInt(4));
+    }
+    try {
+      return read(in);
+    } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Corrupt compiled animation: " + file, e);
+    }
+  }
+
+  /**
+   * Build a canvas from the records of a compiled animation.
+   *
+   * @param in the contents of the file.
+   * @return the loaded canvas.
+   */
+  private static ICanvas read(ByteBuffer in) {
+    ICanvasModel canvas = new ICanvasModel();
+    canvas.setCanvasBounds(in.getInt(8), in.getInt(12), in.getInt(16), in.getInt(20));
+    int shapeCount = in.getInt(24);
+    int transformationCount = in.getInt(28);
+    int namesLength = in.getInt(32);
+    int transformations = HEADER_SIZE + shapeCount * SHAPE_SIZE;
+    int names = transformations + transformationCount * TRANSFORMATION_SIZE;
+    if (shapeCount < 0 || transformationCount < 0 || names + namesLength != in.limit()) {
+      throw new IllegalArgumentException("File size does not match its header.");
+    }
+    byte[] nameTable = new byte[namesLength];
+    in.position(names);
+    in.get(nameTable);
+    int next = transformations;
+    for (int i = 0; i < shapeCount; i++) {
+      int at = HEADER_SIZE + i * SHAPE_SIZE;
+      String name =
+          new String(nameTable, in.getInt(at + 4), in.getInt(at + 8), StandardCharsets.UTF_8);
+      int rgb = in.getInt(at + 28);
+      float x = in.getFloat(at + 12);
+      float y = in.getFloat(at + 16);
+      float base = in.getFloat(at + 20);
+      float height = in.getFloat(at + 24);
+      int r = rgb >> 16;
+      int g = (rgb >> 8) & 0xFF;
+      int b = rgb & 0xFF;
+      Shape shape =
+          in.getInt(at) == ELLIPSE
+              ? new Oval(name, x, y, base, height, r, g, b)
+              : new Rectangle(name, x, y, base, height, r, g, b);
+      shape.setStartFrame(in.getFloat(at + 32));
+      shape.setEndFrame(in.getFloat(at + 36));
+      int count = in.getInt(at + 40);
+      if (count < 0 || count > (names - next) / TRANSFORMATION_SIZE) {
+        throw new IllegalArgumentException("Transformation count does not match the header.");
+      }
+      for (int j = 0; j < count; j++) {
+        shape.addTransformationUnchecked(readTransformation(in, next, shape));
+        next += TRANSFORMATION_SIZE;
+      }
+      canvas.addShape(shape);
+    }
+    canvas.compileTimeline();
+    return canvas;
+  }
+
+  /**
+   * Create a transformation from its record.
+   *
+   * @param in the contents of the file.
+   * @param at the position of the record.
+   * @param shape the initial state of the shape it belongs to.
+   * @return the transformation.
+   */
+  private static Transformation readTransformation(ByteBuffer in, int at, Shape shape) {
+    int start = (int) in.getFloat(at + 4);
+    int end = (int) in.getFloat(at + 8);
+    switch (in.getInt(at)) {
+      case COLOR:
+        int from = in.getInt(at + 12);
+        int to = in.getInt(at + 16);
+        return new ChangeColorT(
+            shape,
+            start,
+            end,
+            from >> 16,
+            (from >> 8) & 0xFF,
+            from & 0xFF,
+            to >> 16,
+            (to >> 8) & 0xFF,
+            to & 0xFF);
+      case VISIBILITY:
+        return new ChangeVisibilityT(shape, in.getFloat(at + 4), in.getFloat(at + 8));
+      case MOVE:
+        return new MoveT(
+            shape,
+            start,
+            end,
+            in.getFloat(at + 12),
+            in.getFloat(at + 16),
+            in.getFloat(at + 20),
+            in.getFloat(at + 24));
+      case BASE:
+      case HEIGHT:
+        return new ResizeT(
+            shape,
+            start,
+            end,
+            in.getInt(at) == BASE ? dimension.BASE : dimension.HEIGHT,
+            in.getFloat(at + 12),
+            in.getFloat(at + 16));
+      default:
+        throw new IllegalArgumentException("Unknown transformation kind: " + in.getInt(at));
+    }
+  }
+
+  /**
+   * Sink that captures the start and end values of a transformation, by running it at its first
+   * frame and after its last one.
+   */
+  private static final class Values implements FrameSink {
+    private float x;
+    private float y;
+    private float size;
+    private int rgb;
+
+    /**
+     * Write the record of a transformation.
+     *
+     * @param t the transformation.
+     * @param out the stream to write to.
+     * @throws IOException if the stream cannot be written.
+     * @throws IllegalArgumentException if the transformation is not one of the built-in types.
+     */
+    void write(Transformation t, DataOutputStream out) throws IOException {
+      TransformationType type = t.getType();
+      int kind;
+      if (type == TransformationType.ChangeColor) {
+        kind = COLOR;
+      } else if (type == TransformationType.ChangeVis) {
+        kind = VISIBILITY;
+      } else if (type == TransformationType.Move) {
+        kind = MOVE;
+      } else if (type == TransformationType.Resize) {
+        kind = t.getDimension() == dimension.BASE ? BASE : HEIGHT;
+      } else {
+        throw new IllegalArgumentException("Cannot save transformation: " + t);
+      }
+      out.writeInt(kind);
+      out.writeFloat(t.getStartFrame());
+      out.writeFloat(t.getEndFrame());
+      if (kind == VISIBILITY) {
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(0);
+        return;
+      }
+      t.executeAtFrame(t.getStartFrame(), this);
+      float x1 = this.x;
+      float y1 = this.y;
+      float size1 = this.size;
+      int rgb1 = this.rgb;
+      t.executeAtFrame(t.getEndFrame() + 1, this);
+      if (kind == COLOR) {
+        out.writeInt(rgb1);
+        out.writeInt(this.rgb);
+        out.writeInt(0);
+        out.writeInt(0);
+      } else if (kind == MOVE) {
+        out.writeFloat(x1);
+        out.writeFloat(y1);
+        out.writeFloat(this.x);
+        out.writeFloat(this.y);
+      } else {
+        out.writeFloat(size1);
+        out.writeFloat(this.size);
+        out.writeInt(0);
+        out.writeInt(0);
+      }
+    }
+
+    @Override
+    public void setPosition(float x, float y) {
+      this.x = x;
+      this.y = y;
+    }
+
+    @Override
+    public void setBase(float base) {
+      this.size = base;
+    }
+
+    @Override
+    public void setHeight(float height) {
+      this.size = height;
+    }
+
+    @Override
+    public void setColor(int r, int g, int b) {
+      this.rgb = (r << 16) | (g << 8) | b;
+    }
+
+    @Override
+    public void setVisibility(boolean visible) {
+      // visibility has no values to save
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package cs5004.animator.model.canvas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import cs5004.animator.model.shape.Shape;
+
+/**
+ * The compiled form of all shapes in a canvas: one ShapeTimeline per shape, in declaration order,
+ * and an index of the frames in which each shape is visible. A CompiledTimeline is immutable and is
+ * replaced as a whole whenever the canvas changes.
+ */
+final class CompiledTimeline {
+  /** Number of shapes evaluated by one fork/join task; a multiple of 64 bits of visibility. */
+  private static final int CHUNK_SIZE = 1024;
+
+  private final ShapeTimeline[] shapes;
+  private final LifetimeIndex lifetimes;
+
+  /**
+   * Compile the given shapes.
+   *
+   * @param initialShapes the initial shapes of the canvas, in declaration order.
+   */
+  CompiledTimeline(ArrayList<Shape> initialShapes) {
+    int n = initialShapes.size();
+    this.shapes = new ShapeTimeline[n];
+    float[] starts = new float[n];
+    float[] ends = new float[n];
+    for (int i = 0; i < n; i++) {
+      this.shapes[i] = new ShapeTimeline(initialShapes.get(i));
+      starts[i] = this.shapes[i].getVisibleFrom();
+      ends[i] = this.shapes[i].getVisibleUntil();
+    }
+    this.lifetimes = new LifetimeIndex(starts, ends);
+  }
+
+  /**
+   * Returns the number of shapes.
+   *
+   * @return the number of shapes.
+   */
+  int size() {
+    return this.shapes.length;
+  }
+
+  /**
+   * Returns the timeline of the shape with the given ordinal.
+   *
+   * @param i the shape ordinal.
+   * @return the timeline of that shape.
+   */
+  ShapeTimeline get(int i) {
+    return this.shapes[i];
+  }
+
+  /**
+   * Write the state of all visible shapes at the given frame into a frame buffer. Shapes that are
+   * not visible at that frame are only marked as hidden; the rest of their slot is not updated.
+   * A visible shape with no transformation in progress is not evaluated again while later frames
+   * stay in the segment it was last evaluated in, as the buffer records for each slot.
+   * When at least parallelThreshold shapes are visible, the shapes are split into chunks that are
+   * evaluated on the common ForkJoinPool. Every shape is written to its own slot, so the result is
+   * the same either way.
+   *
+   * @param frame the frame to be rendered.
+   * @param buffer the frame buffer to write to.
+   * @param parallelThreshold the number of visible shapes from which to evaluate in parallel.
+   * @throws IllegalArgumentException if the frame is negative.
+   */
+  void evaluate(float frame, FrameBuffer buffer, int parallelThreshold)
+      throws IllegalArgumentException {
+    if (frame < 0) {
+      throw new IllegalArgumentException("Frame cannot be negative.");
+    }
+    if (buffer.heldFor != this) {
+      // ranges recorded with another timeline, or before the slots were overwritten, do not apply
+      Arrays.fill(buffer.heldUntil, 0);
+      buffer.heldFor = this;
+    }
+    buffer.clearVisibility();
+    this.lifetimes.stab(frame, buffer.visible);
+    if (this.shapes.length >= parallelThreshold && countVisible(buffer) >= parallelThreshold) {
+      ForkJoinPool.commonPool().invoke(new EvaluateTask(frame, buffer, 0, this.shapes.length));
+    } else {
+      this.evaluateRange(frame, buffer, buffer.slot(0), 0, this.shapes.length);
+    }
+  }
+
+  /**
+   * Evaluate the visible shapes with ordinals in the given range.
+   *
+   * @param frame the frame to be rendered.
+   * @param buffer the frame buffer to write to.
+   * @param slot the sink to write with.
+   * @param from the first ordinal of the range.
+   * @param to the ordinal after the last one of the range.
+   */
+  private void evaluateRange(
+      float frame, FrameBuffer buffer, FrameBuffer.Slot slot, int from, int to) {
+    for (int i = buffer.nextVisible(from); i >= 0 && i < to; i = buffer.nextVisible(i + 1)) {
+      if (frame < buffer.heldFrom[i] || frame >= buffer.heldUntil[i]) {
+        this.shapes[i].writeAtFrame(frame, slot.at(i));
+        this.shapes[i].recordHeld(frame, buffer.heldFrom, buffer.heldUntil, i);
+      }
+    }
+  }
+
+  /**
+   * Count the shapes marked as visible in a frame buffer.
+   *
+   * @param buffer the frame buffer.
+   * @return the number of visible shapes.
+   */
+  private static int countVisible(FrameBuffer buffer) {
+    int count = 0;
+    for (long word : buffer.visible) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  /**
+   * Fork/join task that evaluates a range of shapes. Ranges are split on multiples of CHUNK_SIZE,
+   * so no two tasks write to the same word of the visibility bitset. Tasks are never serialized.
+   */
+  @SuppressWarnings("serial")
+  private final class EvaluateTask extends RecursiveAction {
+    private final float frame;
+    private final FrameBuffer buffer;
+    private final int from;
+    private final int to;
+
+    /**
+     * Create a task for the shapes with ordinals in [from, to).
+     *
+     * @param frame the frame to be rendered.
+     * @param buffer the frame buffer to write to.
+     * @param from the first ordinal of the range.
+     * @param to the ordinal after the last one of the range.
+     */
+    EvaluateTask(float frame, FrameBuffer buffer, int from, int to) {
+      this.frame = frame;
+      this.buffer = buffer;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= CHUNK_SIZE) {
+        evaluateRange(this.frame, this.buffer, this.buffer.newSlot(), this.from, this.to);
+        return;
+      }
+      int chunks = (this.to - this.from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+      int middle = this.from + (chunks / 2) * CHUNK_SIZE;
+      invokeAll(
+          new EvaluateTask(this.frame, this.buffer, this.from, middle),
+          new EvaluateTask(this.frame, this.buffer, middle, this.to));
+    }
+  }
+}
@@ -0,0 +1,264 @@
+package cs5004.animator.model.canvas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import cs5004.animator.model.shape.Shape;
+import cs5004.animator.model.shape.ShapeRenderer;
+import cs5004.animator.model.transformation.FrameSink;
+
+/**
+ * Holds the state of every shape in a canvas at one frame, stored column by column. Each shape is
+ * given a dense ordinal (its position in the canvas, in declaration order), and its position, size,
+ * color and visibility are kept in parallel primitive arrays indexed by that ordinal. A FrameBuffer
+ * is filled by ICanvas.evaluateFrame and can be reused for every frame of an animation. Only the
+ * slots of shapes that are visible at the evaluated frame are guaranteed to be up to date.
+ */
+public final class FrameBuffer {
+  final String[] identifiers;
+  final ShapeRenderer[] renderers;
+  final float[] x;
+  final float[] y;
+  final float[] base;
+  final float[] height;
+  final int[] rgb;
+  final long[] visible;
+  // the frames in which each slot holds the state it was last written, see CompiledTimeline
+  final float[] heldFrom;
+  final float[] heldUntil;
+  CompiledTimeline heldFor;
+  private final Slot slot;
+
+  /**
+   * Create a frame buffer for the given shapes. Only called by the canvas.
+   *
+   * @param shapes the shapes of the canvas, in declaration order.
+   */
+  FrameBuffer(ArrayList<Shape> shapes) {
+    int n = shapes.size();
+    this.identifiers = new String[n];
+    this.renderers = new ShapeRenderer[n];
+    this.x = new float[n];
+    this.y = new float[n];
+    this.base = new float[n];
+    this.height = new float[n];
+    this.rgb = new int[n];
+    this.visible = new long[(n + 63) >>> 6];
+    this.heldFrom = new float[n];
+    this.heldUntil = new float[n];
+    this.slot = new Slot();
+    for (int i = 0; i < n; i++) {
+      Shape s = shapes.get(i);
+      this.identifiers[i] = s.getIdentifier();
+      this.renderers[i] = s.getRenderer();
+    }
+  }
+
+  /**
+   * Returns the number of shapes in the buffer.
+   *
+   * @return the number of shapes.
+   */
+  public int size() {
+    return this.identifiers.length;
+  }
+
+  /**
+   * Returns the identifier of the shape with the given ordinal.
+   *
+   * @param i the shape ordinal.
+   * @return the shape identifier.
+   */
+  public String getIdentifier(int i) {
+    return this.identifiers[i];
+  }
+
+  /**
+   * Returns the renderer that draws the shape with the given ordinal.
+   *
+   * @param i the shape ordinal.
+   * @return the renderer of the shape.
+   */
+  public ShapeRenderer getRenderer(int i) {
+    return this.renderers[i];
+  }
+
+  /**
+   * Returns the x-coordinate of the reference point of a shape.
+   *
+   * @param i the shape ordinal.
+   * @return the x-coordinate.
+   */
+  public float getX(int i) {
+    return this.x[i];
+  }
+
+  /**
+   * Returns the y-coordinate of the reference point of a shape.
+   *
+   * @param i the shape ordinal.
+   * @return the y-coordinate.
+   */
+  public float getY(int i) {
+    return this.y[i];
+  }
+
+  /**
+   * Returns the base of a shape.
+   *
+   * @param i the shape ordinal.
+   * @return the base.
+   */
+  public float getBase(int i) {
+    return this.base[i];
+  }
+
+  /**
+   * Returns the height of a shape.
+   *
+   * @param i the shape ordinal.
+   * @return the height.
+   */
+  public float getHeight(int i) {
+    return this.height[i];
+  }
+
+  /**
+   * Returns the color of a shape packed as 0xRRGGBB.
+   *
+   * @param i the shape ordinal.
+   * @return the packed rgb value.
+   */
+  public int getRGB(int i) {
+    return this.rgb[i];
+  }
+
+  /**
+   * Returns whether a shape is visible.
+   *
+   * @param i the shape ordinal.
+   * @return true if the shape appears on the canvas, false otherwise.
+   */
+  public boolean isVisible(int i) {
+    return (this.visible[i >>> 6] & (1L << i)) != 0;
+  }
+
+  /**
+   * Returns the ordinal of the first visible shape at or after the given ordinal. Visible shapes can
+   * be walked in declaration order with {@code for (int i = b.nextVisible(0); i >= 0; i =
+   * b.nextVisible(i + 1))}.
+   *
+   * @param from the ordinal to start searching from.
+   * @return the ordinal of the next visible shape, or -1 if there is none.
+   */
+  public int nextVisible(int from) {
+    int word = from >>> 6;
+    if (word >= this.visible.length) {
+      return -1;
+    }
+    long bits = this.visible[word] & (-1L << from);
+    while (bits == 0) {
+      if (++word == this.visible.length) {
+        return -1;
+      }
+      bits = this.visible[word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /** Forget the held ranges of the slots, after the slots were written by other means. */
+  void forgetHeld() {
+    this.heldFor = null;
+  }
+
+  /** Mark every shape as hidden. */
+  void clearVisibility() {
+    Arrays.fill(this.visible, 0L);
+  }
+
+  /**
+   * Set the visibility of a shape.
+   *
+   * @param i the shape ordinal.
+   * @param val true if the shape should appear.
+   */
+  void setVisible(int i, boolean val) {
+    if (val) {
+      this.visible[i >>> 6] |= 1L << i;
+    } else {
+      this.visible[i >>> 6] &= ~(1L << i);
+    }
+  }
+
+  /**
+   * Returns a sink that writes into the slot of the shape with the given ordinal. The same sink
+   * object is returned on every call, pointed at the new ordinal.
+   *
+   * @param i the shape ordinal.
+   * @return the sink for that shape.
+   */
+  Slot slot(int i) {
+    return this.slot.at(i);
+  }
+
+  /**
+   * Create a new sink for this buffer. Threads that fill different parts of the buffer at the same
+   * time each need their own sink.
+   *
+   * @return a new sink, pointed at ordinal 0.
+   */
+  Slot newSlot() {
+    return new Slot();
+  }
+
+  /** Sink that writes the result of a transformation into one slot of the frame buffer. */
+  final class Slot implements FrameSink {
+    private int index;
+
+    /**
+     * Point this sink at the slot of another shape.
+     *
+     * @param i the shape ordinal.
+     * @return this sink.
+     */
+    Slot at(int i) {
+      this.index = i;
+      return this;
+    }
+
+    @Override
+    public void setPosition(float x, float y) {
+      FrameBuffer.this.x[this.index] = x;
+      FrameBuffer.this.y[this.index] = y;
+    }
+
+    @Override
+    public void setBase(float base) {
+      FrameBuffer.this.base[this.index] = base;
+    }
+
+    @Override
+    public void setHeight(float height) {
+      FrameBuffer.this.height[this.index] = height;
+    }
+
+    @Override
+    public void setColor(int r, int g, int b) {
+      this.setRGB((r << 16) | (g << 8) | b);
+    }
+
+    /**
+     * Set the color of the shape.
+     *
+     * @param rgb the color packed as 0xRRGGBB.
+     */
+    void setRGB(int rgb) {
+      FrameBuffer.this.rgb[this.index] = rgb;
+    }
+
+    @Override
+    public void setVisibility(boolean visible) {
+      FrameBuffer.this.setVisible(this.index, visible);
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package cs5004.animator.model.canvas;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 
 import cs5004.animator.model.shape.Shape;
@@ -11,6 +13,11 @@ import cs5004.animator.model.transformation.Transformation;
  * objects at a given frame.
  */
 public interface ICanvas {
+  /** Number of visible shapes from which evaluateFrame switches to parallel evaluation. */
+  int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+  /** Number of shapes from which writeSVG writes the shapes in parallel. */
+  int PARALLEL_SVG_THRESHOLD = 256;
 
   /**
    * Get all initial shapes in a canvas object.
@@ -24,6 +31,13 @@ public interface ICanvas {
    */
   void setAllFrames();
 
+  /**
+   * Compile the transformations of every shape into sorted per-property timelines, so that
+   * getShapesAtFrame only has to look up the active transformation of each property. The timeline
+   * is recompiled automatically if shapes or transformations are added afterwards.
+   */
+  void compileTimeline();
+
   /**
    * Set the starting position and the border size of the ICanvas.
    *
@@ -49,17 +63,102 @@ public interface ICanvas {
    */
   String toSVGString(float delay);
 
+  /**
+   * Writes the SVGView text output of the canvas to a Writer, one element at a time, so that the
+   * document is never held in memory as a whole. Canvases with at least PARALLEL_SVG_THRESHOLD
+   * shapes are written in parallel when more than one processor is available.
+   *
+   * @param delay the delay (in ms) between each frame.
+   * @param out the writer to write to.
+   * @throws IOException if the writer fails.
+   */
+  void writeSVG(float delay, Writer out) throws IOException;
+
+  /**
+   * Writes the SVGView text output of the canvas to a Writer, optionally in parallel. In parallel
+   * mode the elements of the shapes are written into buffers on the common ForkJoinPool, and the
+   * buffers are copied to the writer in the order of the shapes, so the output is the same.
+   *
+   * @param delay the delay (in ms) between each frame.
+   * @param out the writer to write to.
+   * @param parallel true to write the elements of the shapes in parallel.
+   * @throws IOException if the writer fails.
+   */
+  void writeSVG(float delay, Writer out, boolean parallel) throws IOException;
+
+  /**
+   * Writes compact SVG output of the canvas to a Writer. Every attribute of a shape that changes is
+   * animated by a single element with a list of values and key times, instead of an element for
+   * every transformation, so the document is much smaller but looks the same. Canvases with at
+   * least PARALLEL_SVG_THRESHOLD shapes are written in parallel when more than one processor is
+   * available.
+   *
+   * @param delay the delay (in ms) between each frame.
+   * @param out the writer to write to.
+   * @throws IOException if the writer fails.
+   */
+  void writeCompactSVG(float delay, Writer out) throws IOException;
+
   /** Resets the mutated shapes in the canvas to their original states. */
   void resetDynamicShapes();
 
   /**
-   * Get the state of all shapes at a given frame.
+   * Get the state of all shapes at a given frame. The returned shapes are the canvas' dynamic
+   * shapes, which are updated in place. Frames can be requested in any order; a shape with no
+   * transformation in progress is only updated when a transformation starts or ends.
    *
    * @param frame the frame that will eventually be rendered in the cs5004.animator.view.
    * @return A list of all shape objects to be rendered in the frame.
    */
   ArrayList<Shape> getShapesAtFrame(float frame);
 
+  /**
+   * Compute the state of all shapes at a given frame directly from their transformations. Unlike
+   * getShapesAtFrame, new Shape objects are returned and no state of the canvas is touched, so any
+   * frame can be requested at any time, including from several threads at once.
+   *
+   * @param frame the frame to compute.
+   * @return new Shape objects holding the state of every shape at that frame, in declaration order.
+   * @throws IllegalArgumentException if the frame is negative.
+   */
+  ArrayList<Shape> stateAt(float frame) throws IllegalArgumentException;
+
+  /**
+   * Create a frame buffer with one slot per shape currently in the canvas, in declaration order.
+   *
+   * @return an empty FrameBuffer to pass to evaluateFrame.
+   */
+  FrameBuffer createFrameBuffer();
+
+  /**
+   * Write the state of all shapes at a given frame into a frame buffer. Unlike getShapesAtFrame,
+   * no Shape objects are mutated; the result only depends on the frame. Only the shapes visible at
+   * the frame are evaluated, and only their slots are guaranteed to be up to date.
+   *
+   * @param frame the frame that will eventually be rendered in the cs5004.animator.view.
+   * @param buffer a buffer created by createFrameBuffer.
+   * @throws IllegalArgumentException if the frame is negative or the buffer does not match the
+   *     shapes in the canvas.
+   */
+  void evaluateFrame(float frame, FrameBuffer buffer) throws IllegalArgumentException;
+
+  /**
+   * Create an evaluator for sequential playback, positioned at frame 0. Advancing it frame by frame
+   * only re-evaluates the shapes whose transformations are in progress, instead of every visible
+   * shape.
+   *
+   * @return a PlaybackEvaluator over the current shapes and transformations.
+   */
+  PlaybackEvaluator createPlaybackEvaluator();
+
+  /**
+   * Set the number of visible shapes from which evaluateFrame splits the work across the common
+   * ForkJoinPool. Use Integer.MAX_VALUE to always evaluate on the calling thread.
+   *
+   * @param threshold the minimum number of visible shapes for parallel evaluation.
+   */
+  void setParallelThreshold(int threshold);
+
   /**
    * Get a shape object by passing its identifier.
    *
@@ -1,33 +1,53 @@
 package cs5004.animator.model.canvas;
 
-import java.awt.Color;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import cs5004.animator.model.shape.Oval;
-import cs5004.animator.model.shape.Point2D;
 import cs5004.animator.model.shape.Rectangle;
 import cs5004.animator.model.shape.Shape;
 import cs5004.animator.model.transformation.ChangeColorT;
 import cs5004.animator.model.transformation.MoveT;
 import cs5004.animator.model.transformation.ResizeT;
 import cs5004.animator.model.transformation.Transformation;
-import cs5004.animator.model.transformation.TransformationType;
 import cs5004.animator.model.transformation.dimension;
 import cs5004.animator.util.AnimationBuilder;
 import cs5004.animator.util.AnimationReader;
+import cs5004.animator.util.OutputEncoder;
 
 /**
  * Represents the canvas for the animation. Contains the initial shape objects and all
  * transformations that will be applied throughout the animation. Can return the state of all shape
  * objects at a given frame.
+ *
+ * <p>Every shape has a dense ordinal, its position in declaration order. Shapes are stored in
+ * lists indexed by ordinal, which is also the index of the shape in the compiled timeline, so
+ * evaluating a frame never looks a shape up by name. A symbol table maps names to ordinals for the
+ * methods that take a shape name.
  */
 public final class ICanvasModel implements ICanvas {
-  private final LinkedHashMap<String, Shape> initialShapes;
-  private LinkedHashMap<String, Shape> dynamicShapes;
+  private final HashMap<String, Integer> ordinals;
+  private final ArrayList<Shape> initialShapes;
+  private final ArrayList<Shape> dynamicShapes;
+  private volatile CompiledTimeline timeline;
+  // the frames in which each dynamic shape holds the state it was last updated to
+  private CompiledTimeline heldTimeline;
+  private float[] heldFrom;
+  private float[] heldUntil;
+  private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
   private int leftMostX;
   private int topMostY;
   private int borderWidth;
@@ -35,20 +55,68 @@ public final class ICanvasModel implements ICanvas {
 
   /** Constructor for a ICanvas that creates an empty list of transformations. */
   public ICanvasModel() {
-    this.initialShapes = new LinkedHashMap<>();
-    dynamicShapes = new LinkedHashMap<>();
+    this.ordinals = new HashMap<>();
+    this.initialShapes = new ArrayList<>();
+    this.dynamicShapes = new ArrayList<>();
   }
 
   @Override
   public ArrayList<Shape> getInitialShapes() {
-    return new ArrayList<>(this.initialShapes.values());
+    return new ArrayList<>(this.initialShapes);
   }
 
   @Override
   public void setAllFrames() {
-    for (Shape s : this.initialShapes.values()) {
+    for (Shape s : this.initialShapes) {
       s.setFrames();
     }
+    this.timeline = null;
+  }
+
+  @Override
+  public void compileTimeline() {
+    this.timeline = new CompiledTimeline(this.getInitialShapes());
+  }
+
+  /**
+   * Returns the compiled timeline, compiling it first if shapes or transformations have changed.
+   *
+   * @return the compiled timeline of the current shapes.
+   */
+  private CompiledTimeline getTimeline() {
+    CompiledTimeline compiled = this.timeline;
+    if (compiled == null) {
+      compiled = new CompiledTimeline(this.getInitialShapes());
+      this.timeline = compiled;
+    }
+    return compiled;
+  }
+
+  /**
+   * Returns a copy of this canvas for playing an animation that is still being loaded. Each shape
+   * is visible from its start frame to its end frame so far, and shapes without a motion yet are
+   * left out. The copy shares the transformations, which do not change once they are created.
+   *
+   * @return a canvas with a compiled timeline, that this canvas does not change.
+   */
+  ICanvasModel snapshot() {
+    ICanvasModel copy = new ICanvasModel();
+    copy.setCanvasBounds(this.leftMostX, this.topMostY, this.borderWidth, this.borderHeight);
+    for (Shape s : this.initialShapes) {
+      if (s.getEndFrame() - s.getStartFrame() < 0.001) {
+        continue;
+      }
+      Shape shape = s.copy();
+      shape.setStartFrame(s.getStartFrame());
+      shape.setEndFrame(s.getEndFrame());
+      for (Transformation t : s.getTransformations()) {
+        shape.addTransformation(t);
+      }
+      copy.addShape(shape);
+    }
+    copy.setAllFrames();
+    copy.compileTimeline();
+    return copy;
   }
 
   @Override
@@ -64,20 +132,21 @@ public final class ICanvasModel implements ICanvas {
     StringBuilder canvasStr = new StringBuilder();
     if (!this.initialShapes.isEmpty()) {
       canvasStr.append("Shapes:\n");
-      initialShapes.forEach((k, v) -> canvasStr.append(v.toString() + "\n\n"));
+      initialShapes.forEach(v -> canvasStr.append(v.toString()).append("\n\n"));
     } else {
       canvasStr.append("No shapes in the animation.\n");
     }
+    // the sort is stable, so the later shapes stay first among transformations that start together
     ArrayList<Transformation> transformations = new ArrayList<>();
-    for (Shape shape : this.initialShapes.values()) {
-      if (!shape.getTransformations().isEmpty()) {
-        transformations.addAll(0, shape.getTransformations());
-      }
+    for (int i = this.initialShapes.size() - 1; i >= 0; i--) {
+      transformations.addAll(this.initialShapes.get(i).getTransformations());
     }
     if (!transformations.isEmpty()) {
       this.sortTransformations(transformations);
       canvasStr.append("Transformations:\n");
-      transformations.forEach(transformation -> canvasStr.append(transformation.toString() + "\n"));
+      for (Transformation transformation : transformations) {
+        canvasStr.append(transformation.toString()).append('\n');
+      }
     } else {
       canvasStr.append("No transformations in the animation.\n");
     }
@@ -86,83 +155,191 @@ public final class ICanvasModel implements ICanvas {
 
   @Override
   public String toSVGString(float delay) {
-    StringBuilder svgStr = new StringBuilder();
-    svgStr.append(
-        String.format(
-            "<svg viewBox=\"%d %d %d %d\" xmlns=\"http://www.w3.org/2000/svg\">\n",
-            this.leftMostX, this.topMostY, this.borderWidth, this.borderHeight));
-    if (!this.initialShapes.isEmpty()) {
-      this.initialShapes.forEach((k, v) -> svgStr.append(v.toSVGString(delay)));
+    StringWriter out = new StringWriter();
+    try {
+      this.writeSVG(delay, out);
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      throw new UncheckedIOException(e);
     }
-    svgStr.append("</svg>");
+    return out.toString();
+  }
+
+  @Override
+  public void writeSVG(float delay, Writer out) throws IOException {
+    this.writeSVG(delay, out, this.isLargeForSVG(), false);
+  }
 
-    return svgStr.toString();
+  @Override
+  public void writeSVG(float delay, Writer out, boolean parallel) throws IOException {
+    this.writeSVG(delay, out, parallel, false);
+  }
+
+  @Override
+  public void writeCompactSVG(float delay, Writer out) throws IOException {
+    this.writeSVG(delay, out, this.isLargeForSVG(), true);
+  }
+
+  /**
+   * Determine if the canvas has enough shapes to be written as SVG in parallel.
+   *
+   * @return true if more than one processor is available and there are many shapes.
+   */
+  private boolean isLargeForSVG() {
+    return Runtime.getRuntime().availableProcessors() > 1
+        && this.initialShapes.size() >= PARALLEL_SVG_THRESHOLD;
+  }
+
+  /**
+   * Writes the SVGView text output of the canvas to a Writer.
+   *
+   * @param delay the delay (in ms) between each frame.
+   * @param out the writer to write to.
+   * @param parallel true to write the elements of the shapes in parallel.
+   * @param compact true to write one animation for each attribute that changes.
+   * @throws IOException if the writer fails.
+   */
+  private void writeSVG(float delay, Writer out, boolean parallel, boolean compact)
+      throws IOException {
+    OutputEncoder encoder = new OutputEncoder(out);
+    encoder
+        .append("<svg viewBox=\"")
+        .appendInt(this.leftMostX)
+        .append(' ')
+        .appendInt(this.topMostY)
+        .append(' ')
+        .appendInt(this.borderWidth)
+        .append(' ')
+        .appendInt(this.borderHeight)
+        .append("\" xmlns=\"http://www.w3.org/2000/svg\">\n");
+    if (parallel) {
+      new ParallelSVGWriter(this.initialShapes, delay, compact).write(encoder);
+    } else if (compact) {
+      for (Shape shape : this.initialShapes) {
+        shape.writeCompactSVG(delay, encoder);
+      }
+    } else {
+      for (Shape shape : this.initialShapes) {
+        shape.writeSVG(delay, encoder);
+      }
+    }
+    encoder.append("</svg>").flush();
   }
 
   @Override
   public void resetDynamicShapes() {
-    this.dynamicShapes = new LinkedHashMap<>();
-    for (String id : this.initialShapes.keySet()) {
-      this.dynamicShapes.put(id, initialShapes.get(id).copy());
+    for (int i = 0; i < this.initialShapes.size(); i++) {
+      this.dynamicShapes.set(i, this.initialShapes.get(i).copy());
     }
+    this.heldTimeline = null;
   }
 
   @Override
   public ArrayList<Shape> getShapesAtFrame(float frame) {
+    CompiledTimeline compiled = this.getTimeline();
+    if (this.heldTimeline != compiled) {
+      // no dynamic shape is known to be up to date for a new timeline
+      this.heldTimeline = compiled;
+      this.heldFrom = new float[compiled.size()];
+      this.heldUntil = new float[compiled.size()];
+    }
     ArrayList<Shape> shapes = new ArrayList<>();
-    for (String id : this.initialShapes.keySet()) {
-      Shape initial = this.initialShapes.get(id);
-      Shape s = this.dynamicShapes.get(id);
-
-      for (Transformation t : initial.getTransformations()) {
-        TransformationType type = t.getType();
-        if (type == TransformationType.ChangeColor) {
-          int[] newColor = (int[]) t.executeAtFrame(s, frame);
-          s.setColor(newColor[0], newColor[1], newColor[2]);
-        } else if (type == TransformationType.ChangeVis) {
-          boolean vis = (boolean) t.executeAtFrame(s, frame);
-          s.setVisibility(vis);
-        } else if (type == TransformationType.Move) {
-          float[] newPos = (float[]) t.executeAtFrame(s, frame);
-          s.setPosition(newPos[0], newPos[1]);
-        } else if (type == TransformationType.Resize) {
-          float newValue = (float) t.executeAtFrame(s, frame);
-          if (t.getDimension() == dimension.BASE) {
-            s.resize(newValue, s.getHeight());
-          } else {
-            s.resize(s.getBase(), newValue);
-          }
-        }
+    ShapeTimeline.ShapeSink sink = new ShapeTimeline.ShapeSink();
+    for (int i = 0; i < compiled.size(); i++) {
+      Shape s = this.dynamicShapes.get(i);
+      // a shape with no transformation in progress is only updated when it leaves its segment
+      if (frame < this.heldFrom[i] || frame >= this.heldUntil[i]) {
+        compiled.get(i).applyAtFrame(s, frame, sink);
+        compiled.get(i).recordHeld(frame, this.heldFrom, this.heldUntil, i);
       }
       shapes.add(s);
     }
     return shapes;
   }
 
+  @Override
+  public ArrayList<Shape> stateAt(float frame) {
+    CompiledTimeline compiled = this.getTimeline();
+    ArrayList<Shape> shapes = new ArrayList<>();
+    ShapeTimeline.ShapeSink sink = new ShapeTimeline.ShapeSink();
+    for (int i = 0; i < compiled.size(); i++) {
+      Shape s = this.initialShapes.get(i).copy();
+      compiled.get(i).applyAtFrame(s, frame, sink);
+      shapes.add(s);
+    }
+    return shapes;
+  }
+
+  @Override
+  public FrameBuffer createFrameBuffer() {
+    return new FrameBuffer(this.getInitialShapes());
+  }
+
+  @Override
+  public void evaluateFrame(float frame, FrameBuffer buffer) throws IllegalArgumentException {
+    CompiledTimeline compiled = this.getTimeline();
+    if (buffer.size() != compiled.size()) {
+      throw new IllegalArgumentException("Frame buffer does not match the shapes in the canvas.");
+    }
+    compiled.evaluate(frame, buffer, this.parallelThreshold);
+  }
+
+  @Override
+  public PlaybackEvaluator createPlaybackEvaluator() {
+    return new PlaybackEvaluator(
+        this.getTimeline(), this.getInitialShapes(), () -> this.parallelThreshold);
+  }
+
+  @Override
+  public void setParallelThreshold(int threshold) {
+    this.parallelThreshold = threshold;
+  }
+
   @Override
   public Shape getShapeById(String id) {
-    return this.initialShapes.get(id);
+    Integer ordinal = this.ordinals.get(id);
+    return ordinal == null ? null : this.initialShapes.get(ordinal);
   }
 
   @Override
   public void addShape(Shape shape) {
-    this.initialShapes.put(shape.getIdentifier(), shape);
-    this.dynamicShapes.put(shape.getIdentifier(), shape.copy());
+    Integer ordinal = this.ordinals.get(shape.getIdentifier());
+    if (ordinal != null) {
+      // a shape with the same name is replaced, and keeps its place
+      this.initialShapes.set(ordinal, shape);
+      this.dynamicShapes.set(ordinal, shape.copy());
+    } else {
+      this.ordinals.put(shape.getIdentifier(), this.initialShapes.size());
+      this.initialShapes.add(shape);
+      this.dynamicShapes.add(shape.copy());
+    }
+    this.timeline = null;
   }
 
   @Override
   public void removeShape(String id) {
-    this.initialShapes.remove(id);
+    Integer ordinal = this.ordinals.remove(id);
+    if (ordinal == null) {
+      return;
+    }
+    this.initialShapes.remove((int) ordinal);
+    this.dynamicShapes.remove((int) ordinal);
+    // the shapes after it move up one place
+    for (int i = ordinal; i < this.initialShapes.size(); i++) {
+      this.ordinals.put(this.initialShapes.get(i).getIdentifier(), i);
+    }
+    this.timeline = null;
   }
 
   @Override
   public void addTransformation(String shapeID, Transformation transformation)
       throws IllegalArgumentException {
-    Shape shape = this.initialShapes.get(shapeID);
+    Shape shape = this.getShapeById(shapeID);
     if (shape == null) {
       throw new IllegalArgumentException("Shape not found.");
     }
     shape.addTransformation(transformation);
+    this.timeline = null;
   }
 
   /**
@@ -195,20 +372,113 @@ public final class ICanvasModel implements ICanvas {
     return borderHeight;
   }
 
-  /** Class that builds a canvas object by reading from an input file. */
+  /**
+   * Class that builds a canvas object by reading from an input file. By default every motion is
+   * checked for conflicts as it is added, and the first conflict stops the build. A builder can
+   * instead defer the checks to build(), which checks the shapes in parallel and reports every
+   * conflict with the line of its motion.
+   */
   public static final class Builder implements AnimationBuilder<ICanvas> {
     ICanvas c;
+    private final boolean deferChecks;
+    // with deferred checks, the input line of each transformation of a shape, by position
+    private final IdentityHashMap<Shape, Lines> lines = new IdentityHashMap<>();
+    private int[] motionLines;
+    private int motionLinesOffset;
 
     /**
-     * Constructor for the Builder class.
+     * Constructor for the Builder class. The input file is either an animation in text, which may
+     * be gzip-compressed, or a compiled animation, which is loaded without parsing. The name "-"
+     * reads the animation in text from standard input.
      *
      * @param inFile the input file to read from.
-     * @throws FileNotFoundException if the file is not found.
+     * @throws FileNotFoundException if the file is not found or cannot be read.
      */
     public Builder(String inFile) throws FileNotFoundException {
+      this(inFile, null);
+    }
+
+    /**
+     * Constructor for a Builder that loads animations in text through a cache, so that a file that
+     * was parsed before is not parsed again.
+     *
+     * @param inFile the input file to read from.
+     * @param cache the cache of parsed animations, or null to always parse the file.
+     * @throws FileNotFoundException if the file is not found or cannot be read.
+     */
+    public Builder(String inFile, AnimationCache cache) throws FileNotFoundException {
+      this(inFile, cache, false);
+    }
+
+    /**
+     * Constructor for a Builder that can defer the conflict checks until the whole file is read.
+     * The shapes are then checked in parallel, and the exception lists every conflicting motion
+     * with its line, instead of only the first.
+     *
+     * @param inFile the input file to read from.
+     * @param cache the cache of parsed animations, or null to always parse the file.
+     * @param deferChecks true to check for conflicts when the canvas is built.
+     * @throws FileNotFoundException if the file is not found or cannot be read.
+     * @throws IllegalArgumentException if motions of a shape conflict.
+     */
+    public Builder(String inFile, AnimationCache cache, boolean deferChecks)
+        throws FileNotFoundException, IllegalArgumentException {
+      this.c = new ICanvasModel();
+      this.deferChecks = deferChecks;
+      if (AnimationReader.STANDARD_INPUT.equals(inFile)) {
+        // standard input can only be read once, so it is parsed without the cache
+        try {
+          AnimationReader.parseFile(System.in, this);
+        } catch (IOException e) {
+          FileNotFoundException notFound = new FileNotFoundException("Could not read input.");
+          notFound.initCause(e);
+          throw notFound;
+        }
+        return;
+      }
+      Path path = Paths.get(inFile);
+      if (!Files.isRegularFile(path)) {
+        throw new FileNotFoundException(inFile);
+      }
+      try {
+        if (CompiledAnimationFile.isCompiled(path)) {
+          this.c = CompiledAnimationFile.read(path);
+        } else if (cache != null) {
+          this.c = cache.load(path, deferChecks);
+        } else {
+          AnimationReader.parseFile(path, this);
+        }
+      } catch (FileNotFoundException e) {
+        throw e;
+      } catch (IOException e) {
+        FileNotFoundException notFound = new FileNotFoundException(inFile + " could not be read.");
+        notFound.initCause(e);
+        throw notFound;
+      }
+    }
+
+    /** Constructor for a Builder that starts with an empty canvas, for reading a file later. */
+    Builder() {
+      this(false);
+    }
+
+    /**
+     * Constructor for a Builder that starts with an empty canvas, for reading a file later.
+     *
+     * @param deferChecks true to check for conflicts when the canvas is built.
+     */
+    Builder(boolean deferChecks) {
       this.c = new ICanvasModel();
-      Readable r = new FileReader(inFile);
-      AnimationReader.parseFile(r, this);
+      this.deferChecks = deferChecks;
+    }
+
+    /**
+     * Returns a copy of the canvas as it has been built so far.
+     *
+     * @return the copy of the canvas.
+     */
+    ICanvasModel snapshot() {
+      return ((ICanvasModel) this.c).snapshot();
     }
 
     /**
@@ -221,8 +491,12 @@ public final class ICanvasModel implements ICanvas {
     }
 
     @Override
-    public ICanvas build() {
+    public ICanvas build() throws IllegalArgumentException {
+      if (this.deferChecks) {
+        this.checkConflicts();
+      }
       this.c.setAllFrames();
+      this.c.compileTimeline();
       this.c.resetDynamicShapes();
       return this.c;
     }
@@ -263,6 +537,161 @@ public final class ICanvasModel implements ICanvas {
         int g2,
         int b2) {
       Shape thisShape = this.c.getShapeById(name);
+      this.addMotion(
+          thisShape, t1, x1, y1, w1, h1, r1, g1, b1, t2, x2, y2, w2, h2, r2, g2, b2);
+      if (this.deferChecks) {
+        this.linesOf(thisShape).fill(thisShape.getTransformations().size(), this.motionLine(0));
+      }
+      this.motionLines = null;
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<ICanvas> setMotionLines(int[] lines, int offset) {
+      this.motionLines = lines;
+      this.motionLinesOffset = offset;
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<ICanvas> addMotions(
+        String name, int[] motions, int offset, int count) {
+      // the shape is looked up once for the whole batch
+      Shape thisShape = this.c.getShapeById(name);
+      Lines shapeLines = this.deferChecks ? this.linesOf(thisShape) : null;
+      for (int k = 0; k < count; k++) {
+        int i = offset + k * MOTION_SIZE;
+        this.addMotion(
+            thisShape, motions[i], motions[i + 1], motions[i + 2], motions[i + 3], motions[i + 4],
+            motions[i + 5], motions[i + 6], motions[i + 7], motions[i + 8], motions[i + 9],
+            motions[i + 10], motions[i + 11], motions[i + 12], motions[i + 13], motions[i + 14],
+            motions[i + 15]);
+        if (shapeLines != null) {
+          shapeLines.fill(thisShape.getTransformations().size(), this.motionLine(k));
+        }
+      }
+      this.motionLines = null;
+      return this;
+    }
+
+    /**
+     * Add a transformation to a shape, checking it for conflicts unless the checks are deferred.
+     *
+     * @param shape the shape.
+     * @param t the transformation to add.
+     */
+    private void addTransformation(Shape shape, Transformation t) {
+      if (this.deferChecks) {
+        shape.addTransformationUnchecked(t);
+      } else {
+        shape.addTransformation(t);
+      }
+    }
+
+    /**
+     * Returns the input line of a motion of the current call, if the reader gave the lines.
+     *
+     * @param k the index of the motion in the call.
+     * @return the line of the motion, or 0 if it is not known.
+     */
+    private int motionLine(int k) {
+      return this.motionLines == null ? 0 : this.motionLines[this.motionLinesOffset + k];
+    }
+
+    /**
+     * Returns the input lines of the transformations of a shape, for deferred checks.
+     *
+     * @param shape the shape.
+     * @return the lines of its transformations so far.
+     */
+    private Lines linesOf(Shape shape) {
+      return this.lines.computeIfAbsent(shape, s -> new Lines());
+    }
+
+    /**
+     * Check the transformations of every shape for conflicts, each shape as a separate task on the
+     * common ForkJoinPool, and report all conflicts at once, in input order.
+     *
+     * @throws IllegalArgumentException if any transformations conflict.
+     */
+    private void checkConflicts() throws IllegalArgumentException {
+      List<Conflict> conflicts =
+          this.c.getInitialShapes().parallelStream()
+              .flatMap(shape -> this.checkConflicts(shape).stream())
+              .sorted(Comparator.comparingInt(conflict -> conflict.line))
+              .collect(Collectors.toList());
+      if (!conflicts.isEmpty()) {
+        StringBuilder message = new StringBuilder("Conflicting Transformation - could not add.");
+        conflicts.forEach(conflict -> message.append('\n').append(conflict.message));
+        throw new IllegalArgumentException(message.toString());
+      }
+    }
+
+    /**
+     * Check the transformations of one shape for conflicts.
+     *
+     * @param shape the shape to check.
+     * @return the conflicting transformations of the shape.
+     */
+    private ArrayList<Conflict> checkConflicts(Shape shape) {
+      ArrayList<Conflict> conflicts = new ArrayList<>();
+      Lines shapeLines = this.lines.get(shape);
+      for (int i : shape.checkTransformations()) {
+        Transformation t = shape.getTransformations().get(i);
+        int line = shapeLines == null ? 0 : shapeLines.get(i);
+        conflicts.add(
+            new Conflict(
+                line,
+                String.format(
+                    "line %d: %s of %s from frame %.0f to %.0f",
+                    line,
+                    t.getType(),
+                    shape.getIdentifier(),
+                    t.getStartFrame(),
+                    t.getEndFrame())));
+      }
+      return conflicts;
+    }
+
+    /**
+     * Add the transformations of a motion to a shape.
+     *
+     * @param thisShape the shape that moves.
+     * @param t1 the start time of the motion.
+     * @param x1 the initial x-position of the shape.
+     * @param y1 the initial y-position of the shape.
+     * @param w1 the initial width of the shape.
+     * @param h1 the initial height of the shape.
+     * @param r1 the initial red color-value of the shape.
+     * @param g1 the initial green color-value of the shape.
+     * @param b1 the initial blue color-value of the shape.
+     * @param t2 the end time of the motion.
+     * @param x2 the final x-position of the shape.
+     * @param y2 the final y-position of the shape.
+     * @param w2 the final width of the shape.
+     * @param h2 the final height of the shape.
+     * @param r2 the final red color-value of the shape.
+     * @param g2 the final green color-value of the shape.
+     * @param b2 the final blue color-value of the shape.
+     */
+    private void addMotion(
+        Shape thisShape,
+        int t1,
+        int x1,
+        int y1,
+        int w1,
+        int h1,
+        int r1,
+        int g1,
+        int b1,
+        int t2,
+        int x2,
+        int y2,
+        int w2,
+        int h2,
+        int r2,
+        int g2,
+        int b2) {
       if (!thisShape.isInitialized()) {
         thisShape.setPosition(x1, y1);
         thisShape.setColor(r1, g1, b1);
@@ -271,26 +700,21 @@ public final class ICanvasModel implements ICanvas {
         thisShape.setEndFrame(t2);
         thisShape.initialize();
       }
-      int currentTransformations = thisShape.getTransformations().size();
-      Color c1 = new Color(r1, g1, b1);
-      Color c2 = new Color(r2, g2, b2);
-      if (!(c1.equals(c2))) {
-        Transformation<int[]> color = new ChangeColorT(thisShape, t1, t2, c1, c2);
-        this.c.addTransformation(name, color);
+      checkColor(r1, g1, b1);
+      checkColor(r2, g2, b2);
+      if (r1 != r2 || g1 != g2 || b1 != b2) {
+        this.addTransformation(
+            thisShape, new ChangeColorT(thisShape, t1, t2, r1, g1, b1, r2, g2, b2));
       }
       if (!(x1 == x2 && y1 == y2)) {
-        Transformation<float[]> move =
-            new MoveT(thisShape, t1, t2, new Point2D(x1, y1), new Point2D(x2, y2));
-        this.c.addTransformation(name, move);
+        this.addTransformation(thisShape, new MoveT(thisShape, t1, t2, x1, y1, x2, y2));
       }
       if (w1 != w2) {
-        Transformation<Float> resizeBase = new ResizeT(thisShape, t1, t2, dimension.BASE, w1, w2);
-        this.c.addTransformation(name, resizeBase);
+        this.addTransformation(thisShape, new ResizeT(thisShape, t1, t2, dimension.BASE, w1, w2));
       }
       if (h1 != h2) {
-        Transformation<Float> resizeHeight =
-            new ResizeT(thisShape, t1, t2, dimension.HEIGHT, h1, h2);
-        this.c.addTransformation(name, resizeHeight);
+        this.addTransformation(
+            thisShape, new ResizeT(thisShape, t1, t2, dimension.HEIGHT, h1, h2));
       }
       if (thisShape.getStartFrame() > t1) {
         thisShape.setStartFrame(t1);
@@ -298,8 +722,78 @@ public final class ICanvasModel implements ICanvas {
       if (thisShape.getEndFrame() < t2) {
         thisShape.setEndFrame(t2);
       }
+    }
+
+    /**
+     * Check that a color of a motion has components from 0 to 255.
+     *
+     * @param r the red value.
+     * @param g the green value.
+     * @param b the blue value.
+     * @throws IllegalArgumentException naming the components that are out of range.
+     */
+    private static void checkColor(int r, int g, int b) throws IllegalArgumentException {
+      if (((r | g | b) & ~0xFF) == 0) {
+        return;
+      }
+      StringBuilder message = new StringBuilder("Color parameter outside of expected range:");
+      if ((r & ~0xFF) != 0) {
+        message.append(" Red");
+      }
+      if ((g & ~0xFF) != 0) {
+        message.append(" Green");
+      }
+      if ((b & ~0xFF) != 0) {
+        message.append(" Blue");
+      }
+      throw new IllegalArgumentException(message.toString());
+    }
+
+    /** The input lines of the transformations of a shape, by position. */
+    private static final class Lines {
+      private int[] lines = new int[16];
+      private int size;
+
+      /**
+       * Give a line to every transformation up to a position that has none yet.
+       *
+       * @param end the position after the last transformation.
+       * @param line the input line of the transformations.
+       */
+      void fill(int end, int line) {
+        if (end > this.lines.length) {
+          this.lines = Arrays.copyOf(this.lines, Math.max(end, this.lines.length * 2));
+        }
+        Arrays.fill(this.lines, this.size, end, line);
+        this.size = end;
+      }
 
-      return null;
+      /**
+       * Returns the line of a transformation.
+       *
+       * @param i the position of the transformation.
+       * @return its input line, or 0 if it is not known.
+       */
+      int get(int i) {
+        return i < this.size ? this.lines[i] : 0;
+      }
+    }
+
+    /** A conflicting transformation, with the line it was read from. */
+    private static final class Conflict {
+      private final int line;
+      private final String message;
+
+      /**
+       * Create a conflict.
+       *
+       * @param line the input line of the transformation.
+       * @param message the description of the transformation.
+       */
+      Conflict(int line, String message) {
+        this.line = line;
+        this.message = message;
+      }
     }
   }
 }
@@ -0,0 +1,125 @@
+package cs5004.animator.model.canvas;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Centered interval tree over the frames in which each shape is visible. Each interval is
+ * half-open, [start, end), and is identified by the ordinal of its shape. A stabbing query returns
+ * every shape visible at a frame in O(log n + m), where m is the number of visible shapes, so shapes
+ * that are idle far away from the frame are never looked at.
+ */
+final class LifetimeIndex {
+  private final float[] starts;
+  private final float[] ends;
+  private final Node root;
+
+  /**
+   * Build the index. Intervals that are empty (start not before end) are left out.
+   *
+   * @param starts the first visible frame of each shape, indexed by ordinal.
+   * @param ends the frame at which each shape disappears, indexed by ordinal.
+   */
+  LifetimeIndex(float[] starts, float[] ends) {
+    this.starts = starts;
+    this.ends = ends;
+    ArrayList<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < starts.length; i++) {
+      if (starts[i] < ends[i]) {
+        ids.add(i);
+      }
+    }
+    this.root = this.build(ids);
+  }
+
+  /**
+   * Build the subtree holding the given intervals.
+   *
+   * @param ids the ordinals of the intervals.
+   * @return the root of the subtree, or null if there are no intervals.
+   */
+  private Node build(ArrayList<Integer> ids) {
+    if (ids.isEmpty()) {
+      return null;
+    }
+    ids.sort(Comparator.comparingDouble(i -> this.starts[i]));
+    // the start of the median interval lies inside that interval, so the node is never empty
+    float center = this.starts[ids.get(ids.size() / 2)];
+    ArrayList<Integer> here = new ArrayList<>();
+    ArrayList<Integer> left = new ArrayList<>();
+    ArrayList<Integer> right = new ArrayList<>();
+    for (int i : ids) {
+      if (this.ends[i] <= center) {
+        left.add(i);
+      } else if (this.starts[i] > center) {
+        right.add(i);
+      } else {
+        here.add(i);
+      }
+    }
+    Node node = new Node(center, here.size());
+    for (int i = 0; i < here.size(); i++) {
+      node.byStart[i] = here.get(i);
+    }
+    here.sort(Comparator.comparingDouble(i -> -this.ends[i]));
+    for (int i = 0; i < here.size(); i++) {
+      node.byEnd[i] = here.get(i);
+    }
+    node.left = this.build(left);
+    node.right = this.build(right);
+    return node;
+  }
+
+  /**
+   * Mark every shape that is visible at the given frame in a bitset indexed by ordinal. Bits of
+   * other shapes are left untouched.
+   *
+   * @param frame the frame to query.
+   * @param bits the bitset to mark.
+   */
+  void stab(float frame, long[] bits) {
+    Node node = this.root;
+    while (node != null) {
+      if (frame < node.center) {
+        // every interval here ends after the center, so only the start has to be checked
+        for (int i : node.byStart) {
+          if (this.starts[i] > frame) {
+            break;
+          }
+          bits[i >>> 6] |= 1L << i;
+        }
+        node = node.left;
+      } else {
+        // every interval here starts at or before the center, so only the end has to be checked
+        for (int i : node.byEnd) {
+          if (this.ends[i] <= frame) {
+            break;
+          }
+          bits[i >>> 6] |= 1L << i;
+        }
+        node = node.right;
+      }
+    }
+  }
+
+  /** A node of the tree, holding the intervals that contain its center. */
+  private static final class Node {
+    private final float center;
+    private final int[] byStart;
+    private final int[] byEnd;
+    private Node left;
+    private Node right;
+
+    /**
+     * Create a node.
+     *
+     * @param center the frame that all intervals of this node contain.
+     * @param size the number of intervals in this node.
+     */
+    Node(float center, int size) {
+      this.center = center;
+      this.byStart = new int[size];
+      this.byEnd = new int[size];
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package cs5004.animator.model.canvas;
+
+import java.util.HashSet;
+
+/**
+ * Tracks the frame before which an animation that is still being read is final. A motion changes
+ * nothing before its start, so once motions are known to arrive in order of their start, every
+ * frame before the start of the latest motion is final. The input does not say how it is ordered,
+ * so the watermark only moves while the motions read so far are consistent with an input sorted by
+ * start time:
+ *
+ * <ul>
+ *   <li>every declared shape has had a motion, so no shape can still appear earlier;
+ *   <li>no motion has started before the one read before it;
+ *   <li>no shape has been declared after the first motion;
+ *   <li>the motion belongs to a different shape than the one before it, so a file that lists the
+ *       motions of each shape together never claims a frame while reading its first shapes.
+ * </ul>
+ *
+ * <p>Once any of these fails, the input is not sorted and the watermark drops back to 0 for the
+ * rest of the input, so that a view waits for the whole animation to be read.
+ */
+public final class MotionWatermark {
+  private final HashSet<String> unmoved = new HashSet<>();
+  private String lastShape;
+  private int lastStart = Integer.MIN_VALUE;
+  private boolean sorted = true;
+  private float frame;
+
+  /**
+   * Record the declaration of a shape.
+   *
+   * @param name the name of the shape.
+   */
+  public void declareShape(String name) {
+    if (this.lastShape != null) {
+      // the motions of a shape declared this late may start before the frames already claimed
+      this.sorted = false;
+      this.frame = 0;
+    }
+    this.unmoved.add(name);
+  }
+
+  /**
+   * Record a motion and move the watermark to its start if the input still looks sorted.
+   *
+   * @param name the name of the shape that moves.
+   * @param start the frame at which the motion starts.
+   */
+  public void addMotion(String name, int start) {
+    if (start < this.lastStart) {
+      this.sorted = false;
+      this.frame = 0;
+    }
+    this.unmoved.remove(name);
+    if (this.sorted && this.unmoved.isEmpty() && !name.equals(this.lastShape)
+        && this.lastShape != null) {
+      this.frame = start;
+    }
+    this.lastShape = name;
+    this.lastStart = start;
+  }
+
+  /**
+   * Returns the frame before which every frame is final.
+   *
+   * @return the watermark, 0 if no frame is known to be final.
+   */
+  public float getFrame() {
+    return this.frame;
+  }
+}
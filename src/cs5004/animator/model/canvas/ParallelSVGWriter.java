@@ -0,0 +1,104 @@
+package cs5004.animator.model.canvas;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import cs5004.animator.model.shape.Shape;
+import cs5004.animator.util.OutputEncoder;
+
+/**
+ * Writes the SVG elements of many shapes in parallel. The element of a shape only depends on the
+ * shape and its transformations, so runs of consecutive shapes are written into separate buffers
+ * on the common ForkJoinPool. The calling thread copies the buffers to the output in the order of
+ * the shapes, so the output is the same as writing the shapes one after the other. Only a few
+ * buffers are kept at a time, so the document is never held in memory as a whole.
+ */
+final class ParallelSVGWriter {
+  /** Number of transformations from which a run of shapes is written as one task. */
+  static final int BATCH_SIZE = 4096;
+
+  private final List<Shape> shapes;
+  private final float delay;
+  private final boolean compact;
+  private final int maxInFlight;
+
+  /**
+   * Create a writer for the elements of some shapes.
+   *
+   * @param shapes the shapes, in the order they are written.
+   * @param delay the delay (in ms) between each frame.
+   * @param compact true to write one animation for each attribute that changes.
+   */
+  ParallelSVGWriter(List<Shape> shapes, float delay, boolean compact) {
+    this.shapes = shapes;
+    this.delay = delay;
+    this.compact = compact;
+    this.maxInFlight = 2 * (ForkJoinPool.getCommonPoolParallelism() + 1);
+  }
+
+  /**
+   * Write the elements of all shapes.
+   *
+   * @param out the encoder to write to.
+   * @throws IOException if the underlying writer fails.
+   */
+  void write(OutputEncoder out) throws IOException {
+    ArrayDeque<Future<CharArrayWriter>> pending = new ArrayDeque<>();
+    int next = 0;
+    try {
+      while (next < this.shapes.size() || !pending.isEmpty()) {
+        while (pending.size() < this.maxInFlight && next < this.shapes.size()) {
+          int start = next;
+          int transformations = 0;
+          do {
+            transformations += this.shapes.get(next++).getTransformations().size();
+          } while (next < this.shapes.size() && transformations < BATCH_SIZE);
+          int end = next;
+          pending.add(ForkJoinPool.commonPool().submit(() -> this.writeBatch(start, end)));
+        }
+        pending.remove().get().writeTo(out);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while writing the animation.");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw (Error) e.getCause();
+    } finally {
+      pending.forEach(f -> f.cancel(true));
+    }
+  }
+
+  /**
+   * Write the elements of a run of shapes to a buffer.
+   *
+   * @param start the index of the first shape.
+   * @param end the index after the last shape.
+   * @return the buffer holding the elements.
+   */
+  private CharArrayWriter writeBatch(int start, int end) {
+    CharArrayWriter batch = new CharArrayWriter();
+    try (OutputEncoder encoder = new OutputEncoder(batch)) {
+      for (int i = start; i < end; i++) {
+        if (this.compact) {
+          this.shapes.get(i).writeCompactSVG(this.delay, encoder);
+        } else {
+          this.shapes.get(i).writeSVG(this.delay, encoder);
+        }
+      }
+    } catch (IOException e) {
+      // a CharArrayWriter does not throw
+      throw new UncheckedIOException(e);
+    }
+    return batch;
+  }
+}
@@ -0,0 +1,456 @@
+package cs5004.animator.model.canvas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.IntSupplier;
+
+import cs5004.animator.model.shape.Shape;
+import cs5004.animator.model.transformation.Transformation;
+import cs5004.animator.model.transformation.TransformationType;
+
+/**
+ * Evaluates an animation frame after frame, touching only the shapes that change. Every
+ * transformation of every shape is a window of frames; the windows are kept as two event lists,
+ * sorted by start and by end frame. Advancing to a later frame consumes the events passed since the
+ * previous frame, keeps a set of shapes with a window in progress, and re-evaluates only those
+ * shapes. A shape outside all of its windows has the same state as in the previous frame, so the
+ * cost of a frame is proportional to the number of active shapes plus the number of events.
+ *
+ * <p>A visibility change lasts the whole lifetime of its shape, so it is not a window: the shape
+ * is only evaluated once when it appears and once when it disappears.
+ *
+ * <p>Like the I-frames of a video, the evaluator stores a snapshot of its state every few frames
+ * while it plays. Seeking restores the closest earlier snapshot and advances from there instead of
+ * evaluating every visible shape from scratch. The snapshot interval and the memory they may use
+ * are configurable; when the budget runs out the interval is doubled and every other snapshot is
+ * dropped.
+ *
+ * <p>The evaluator works on the timeline that was compiled when it was created; shapes or
+ * transformations added to the canvas afterwards are not seen.
+ */
+public final class PlaybackEvaluator {
+  /** Default number of frames between two checkpoints. */
+  public static final int DEFAULT_CHECKPOINT_INTERVAL = 100;
+  /** Default memory budget for checkpoints, in bytes. */
+  public static final long DEFAULT_CHECKPOINT_BUDGET = 16L * 1024 * 1024;
+
+  private final CompiledTimeline timeline;
+  private final IntSupplier parallelThreshold;
+  private final FrameBuffer buffer;
+  private final FrameBuffer.Slot slot;
+  private final float[] startFrames;
+  private final int[] startShapes;
+  private final float[] endFrames;
+  private final int[] endShapes;
+  private final float[] boundaryFrames;
+  private final int[] boundaryShapes;
+  private final int[] live;
+  private final int[] active;
+  private final int[] activePosition;
+  private int activeCount;
+  private int startCursor;
+  private int endCursor;
+  private int boundaryCursor;
+  private float frame;
+  private final ArrayList<Checkpoint> checkpoints = new ArrayList<>();
+  private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+  private long checkpointBudget = DEFAULT_CHECKPOINT_BUDGET;
+
+  /**
+   * Create an evaluator for a compiled timeline, positioned at frame 0.
+   *
+   * @param timeline the compiled timeline of the canvas.
+   * @param initialShapes the initial shapes of the canvas, in declaration order.
+   * @param parallelThreshold the current number of visible shapes from which a seek without a
+   *     checkpoint evaluates in parallel.
+   */
+  PlaybackEvaluator(
+      CompiledTimeline timeline, ArrayList<Shape> initialShapes, IntSupplier parallelThreshold) {
+    this.timeline = timeline;
+    this.parallelThreshold = parallelThreshold;
+    this.buffer = new FrameBuffer(initialShapes);
+    this.slot = this.buffer.newSlot();
+    int windows = 0;
+    int boundaries = 0;
+    for (Shape shape : initialShapes) {
+      for (Transformation t : shape.getTransformations()) {
+        if (t.getType() == TransformationType.ChangeVis) {
+          boundaries += 2;
+        } else {
+          windows++;
+        }
+      }
+    }
+    this.startFrames = new float[windows];
+    this.startShapes = new int[windows];
+    this.endFrames = new float[windows];
+    this.endShapes = new int[windows];
+    this.boundaryFrames = new float[boundaries];
+    this.boundaryShapes = new int[boundaries];
+    int w = 0;
+    int b = 0;
+    for (int i = 0; i < initialShapes.size(); i++) {
+      for (Transformation t : initialShapes.get(i).getTransformations()) {
+        if (t.getType() == TransformationType.ChangeVis) {
+          this.boundaryFrames[b] = t.getStartFrame();
+          this.boundaryShapes[b++] = i;
+          this.boundaryFrames[b] = t.getEndFrame();
+          this.boundaryShapes[b++] = i;
+        } else {
+          this.startFrames[w] = t.getStartFrame();
+          this.startShapes[w] = i;
+          this.endFrames[w] = t.getEndFrame();
+          this.endShapes[w++] = i;
+        }
+      }
+    }
+    sortByFrame(this.startFrames, this.startShapes);
+    sortByFrame(this.endFrames, this.endShapes);
+    sortByFrame(this.boundaryFrames, this.boundaryShapes);
+    this.live = new int[initialShapes.size()];
+    this.active = new int[initialShapes.size()];
+    this.activePosition = new int[initialShapes.size()];
+    this.seek(0);
+  }
+
+  /**
+   * Returns the frame buffer holding the state at the current frame. The same buffer is updated
+   * in place by seek and advance.
+   *
+   * @return the frame buffer.
+   */
+  public FrameBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  /**
+   * Returns the frame the buffer currently holds.
+   *
+   * @return the current frame.
+   */
+  public float getFrame() {
+    return this.frame;
+  }
+
+  /**
+   * Returns the number of shapes with a transformation in progress, which are the shapes the next
+   * advance re-evaluates. Shapes that are only visible are not counted.
+   *
+   * @return the number of active shapes.
+   */
+  public int getActiveCount() {
+    return this.activeCount;
+  }
+
+  /**
+   * Set how often checkpoints are taken and how much memory they may use. Existing checkpoints are
+   * dropped.
+   *
+   * @param interval the number of frames between checkpoints, or 0 to disable checkpoints.
+   * @param budget the maximum number of bytes used by all checkpoints together.
+   * @throws IllegalArgumentException if the interval or the budget is negative.
+   */
+  public void setCheckpointPolicy(int interval, long budget) throws IllegalArgumentException {
+    if (interval < 0 || budget < 0) {
+      throw new IllegalArgumentException("Checkpoint interval and budget cannot be negative.");
+    }
+    this.checkpointInterval = interval;
+    this.checkpointBudget = budget;
+    this.checkpoints.clear();
+  }
+
+  /**
+   * Returns the number of frames currently between two checkpoints. This grows when the memory
+   * budget is exceeded.
+   *
+   * @return the checkpoint interval, or 0 if checkpoints are disabled.
+   */
+  public int getCheckpointInterval() {
+    return this.checkpointInterval;
+  }
+
+  /**
+   * Jump to the given frame. If a checkpoint at or before the frame exists, its state is restored
+   * and the evaluator advances from there; otherwise the frame is evaluated from scratch.
+   *
+   * @param frame the frame to jump to.
+   * @throws IllegalArgumentException if the frame is negative.
+   */
+  public void seek(float frame) throws IllegalArgumentException {
+    if (frame < 0) {
+      throw new IllegalArgumentException("Frame cannot be negative.");
+    }
+    Checkpoint checkpoint = this.findCheckpoint(frame);
+    if (checkpoint == null) {
+      this.evaluateFrom(frame);
+      this.recordCheckpoint();
+    } else {
+      checkpoint.restore();
+      this.advance(frame);
+    }
+  }
+
+  /**
+   * Evaluate the given frame from scratch and reposition the event lists at it.
+   *
+   * @param frame the frame to jump to.
+   */
+  private void evaluateFrom(float frame) {
+    // advance and restored checkpoints write slots without recording held ranges
+    this.buffer.forgetHeld();
+    this.timeline.evaluate(frame, this.buffer, this.parallelThreshold.getAsInt());
+    this.startCursor = upperBound(this.startFrames, frame);
+    this.endCursor = upperBound(this.endFrames, frame);
+    this.boundaryCursor = upperBound(this.boundaryFrames, frame);
+    Arrays.fill(this.live, 0);
+    for (int i = 0; i < this.startCursor; i++) {
+      this.live[this.startShapes[i]]++;
+    }
+    for (int i = 0; i < this.endCursor; i++) {
+      this.live[this.endShapes[i]]--;
+    }
+    this.rebuildActive();
+    this.frame = frame;
+  }
+
+  /** Rebuild the active set from the live window counts. */
+  private void rebuildActive() {
+    this.activeCount = 0;
+    for (int s = 0; s < this.live.length; s++) {
+      this.activePosition[s] = -1;
+      if (this.live[s] > 0) {
+        this.activate(s);
+      }
+    }
+  }
+
+  /**
+   * Move to the given frame. Moving forward only re-evaluates the shapes that have a
+   * transformation in progress, that crossed the start or end of one, or that appeared or
+   * disappeared; moving backward falls back to seek.
+   *
+   * @param frame the frame to move to.
+   * @throws IllegalArgumentException if the frame is negative.
+   */
+  public void advance(float frame) throws IllegalArgumentException {
+    if (frame < this.frame) {
+      this.seek(frame);
+      return;
+    }
+    while (this.startCursor < this.startFrames.length
+        && this.startFrames[this.startCursor] <= frame) {
+      int s = this.startShapes[this.startCursor++];
+      if (this.live[s]++ == 0) {
+        this.activate(s);
+      }
+    }
+    for (int i = 0; i < this.activeCount; i++) {
+      int s = this.active[i];
+      this.timeline.get(s).writeAtFrame(frame, this.slot.at(s));
+    }
+    while (this.boundaryCursor < this.boundaryFrames.length
+        && this.boundaryFrames[this.boundaryCursor] <= frame) {
+      int s = this.boundaryShapes[this.boundaryCursor++];
+      // active shapes were evaluated above
+      if (this.activePosition[s] < 0) {
+        this.timeline.get(s).writeAtFrame(frame, this.slot.at(s));
+      }
+    }
+    // windows that have ended are at their final value and will not change again
+    while (this.endCursor < this.endFrames.length && this.endFrames[this.endCursor] <= frame) {
+      int s = this.endShapes[this.endCursor++];
+      if (--this.live[s] == 0) {
+        this.deactivate(s);
+      }
+    }
+    this.frame = frame;
+    this.recordCheckpoint();
+  }
+
+  /**
+   * Find the latest checkpoint taken at or before the given frame.
+   *
+   * @param frame the frame to seek to.
+   * @return the checkpoint, or null if there is none.
+   */
+  private Checkpoint findCheckpoint(float frame) {
+    if (this.checkpointInterval == 0) {
+      return null;
+    }
+    int slot = Math.min((int) (frame / this.checkpointInterval), this.checkpoints.size() - 1);
+    for (; slot >= 0; slot--) {
+      Checkpoint checkpoint = this.checkpoints.get(slot);
+      if (checkpoint != null && checkpoint.frame <= frame) {
+        return checkpoint;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Take a checkpoint of the current state if none exists yet for the current interval. If the
+   * memory budget would be exceeded, the interval is doubled first.
+   */
+  private void recordCheckpoint() {
+    if (this.checkpointInterval == 0) {
+      return;
+    }
+    int slot = (int) (this.frame / this.checkpointInterval);
+    if (slot < this.checkpoints.size() && this.checkpoints.get(slot) != null) {
+      return;
+    }
+    long size = 4L * 6 * this.buffer.size() + 8L * this.buffer.visible.length;
+    if (size > this.checkpointBudget) {
+      return;
+    }
+    int count = 1;
+    for (Checkpoint checkpoint : this.checkpoints) {
+      count += checkpoint == null ? 0 : 1;
+    }
+    if (count * size > this.checkpointBudget) {
+      this.thinCheckpoints();
+      this.recordCheckpoint();
+      return;
+    }
+    while (this.checkpoints.size() <= slot) {
+      this.checkpoints.add(null);
+    }
+    this.checkpoints.set(slot, new Checkpoint());
+  }
+
+  /** Double the checkpoint interval, keeping the earliest checkpoint of each new interval. */
+  private void thinCheckpoints() {
+    this.checkpointInterval *= 2;
+    ArrayList<Checkpoint> kept = new ArrayList<>();
+    for (Checkpoint checkpoint : this.checkpoints) {
+      if (checkpoint == null) {
+        continue;
+      }
+      int slot = (int) (checkpoint.frame / this.checkpointInterval);
+      while (kept.size() <= slot) {
+        kept.add(null);
+      }
+      if (kept.get(slot) == null) {
+        kept.set(slot, checkpoint);
+      }
+    }
+    this.checkpoints.clear();
+    this.checkpoints.addAll(kept);
+  }
+
+  /**
+   * Add a shape to the active set.
+   *
+   * @param s the shape ordinal.
+   */
+  private void activate(int s) {
+    this.activePosition[s] = this.activeCount;
+    this.active[this.activeCount++] = s;
+  }
+
+  /**
+   * Remove a shape from the active set by moving the last active shape into its place.
+   *
+   * @param s the shape ordinal.
+   */
+  private void deactivate(int s) {
+    int position = this.activePosition[s];
+    int last = this.active[--this.activeCount];
+    this.active[position] = last;
+    this.activePosition[last] = position;
+    this.activePosition[s] = -1;
+  }
+
+  /**
+   * Sort events by frame, keeping the shape of every event with it. Events at the same frame keep
+   * their order.
+   *
+   * @param frames the frames of the events.
+   * @param shapes the shape ordinals of the events.
+   */
+  private static void sortByFrame(float[] frames, int[] shapes) {
+    int n = frames.length;
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingDouble(i -> frames[i]));
+    float[] unsortedFrames = frames.clone();
+    int[] unsortedShapes = shapes.clone();
+    for (int i = 0; i < n; i++) {
+      frames[i] = unsortedFrames[order[i]];
+      shapes[i] = unsortedShapes[order[i]];
+    }
+  }
+
+  /**
+   * Count the values in a sorted array that are not greater than the given value.
+   *
+   * @param sorted an array sorted in ascending order.
+   * @param value the value to compare with.
+   * @return the index of the first element greater than the value.
+   */
+  private static int upperBound(float[] sorted, float value) {
+    int lo = 0;
+    int hi = sorted.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (sorted[mid] <= value) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /** Snapshot of the evaluator's state at one frame. */
+  private final class Checkpoint {
+    private final float frame;
+    private final int startCursor;
+    private final int endCursor;
+    private final int boundaryCursor;
+    private final int[] live;
+    private final float[] x;
+    private final float[] y;
+    private final float[] base;
+    private final float[] height;
+    private final int[] rgb;
+    private final long[] visible;
+
+    /** Take a snapshot of the current state of the evaluator. */
+    Checkpoint() {
+      PlaybackEvaluator e = PlaybackEvaluator.this;
+      this.frame = e.frame;
+      this.startCursor = e.startCursor;
+      this.endCursor = e.endCursor;
+      this.boundaryCursor = e.boundaryCursor;
+      this.live = e.live.clone();
+      this.x = e.buffer.x.clone();
+      this.y = e.buffer.y.clone();
+      this.base = e.buffer.base.clone();
+      this.height = e.buffer.height.clone();
+      this.rgb = e.buffer.rgb.clone();
+      this.visible = e.buffer.visible.clone();
+    }
+
+    /** Put the evaluator back into the state of this snapshot. */
+    void restore() {
+      PlaybackEvaluator e = PlaybackEvaluator.this;
+      int n = this.live.length;
+      System.arraycopy(this.live, 0, e.live, 0, n);
+      System.arraycopy(this.x, 0, e.buffer.x, 0, n);
+      System.arraycopy(this.y, 0, e.buffer.y, 0, n);
+      System.arraycopy(this.base, 0, e.buffer.base, 0, n);
+      System.arraycopy(this.height, 0, e.buffer.height, 0, n);
+      System.arraycopy(this.rgb, 0, e.buffer.rgb, 0, n);
+      System.arraycopy(this.visible, 0, e.buffer.visible, 0, this.visible.length);
+      e.startCursor = this.startCursor;
+      e.endCursor = this.endCursor;
+      e.boundaryCursor = this.boundaryCursor;
+      e.frame = this.frame;
+      e.rebuildActive();
+    }
+  }
+}
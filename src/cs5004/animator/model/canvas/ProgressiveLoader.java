@@ -0,0 +1,248 @@
+package cs5004.animator.model.canvas;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+import cs5004.animator.util.AnimationBuilder;
+import cs5004.animator.util.AnimationReader;
+
+/**
+ * Loads an animation file on a background thread, so that it can be played while it is read. The
+ * loader builds the canvas motion by motion and every so often publishes a snapshot of what it has
+ * read so far, together with a watermark: every frame before the watermark is final. The watermark
+ * only moves while the motions read look sorted by start time, see {@link MotionWatermark}; for
+ * other files, such as files that list the motions of each shape together, it stays at 0 until the
+ * whole file is read. A view plays the latest snapshot and only has to wait when it catches up
+ * with the watermark.
+ *
+ * <p>Snapshots are copies of the canvas, so the view never reads a shape that the loader is
+ * changing. While a file is loading, each shape is visible from the start of its first motion to
+ * the end of its last motion read so far. Copying a large canvas takes time, so snapshots are taken
+ * less often as the canvas grows, and the loader spends at most about a fifth of its time on them.
+ *
+ * <p>If reading fails after the first snapshot, the snapshots published so far stay playable and
+ * the error is kept for the view to report, see {@link #getFailure()}.
+ */
+public final class ProgressiveLoader {
+  /** Minimum time between two snapshots, in milliseconds. */
+  public static final long PUBLISH_INTERVAL = 100;
+
+  private final ICanvasModel.Builder builder = new ICanvasModel.Builder();
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch finished = new CountDownLatch(1);
+  private volatile Snapshot latest;
+  private volatile RuntimeException failure;
+  private final MotionWatermark watermark = new MotionWatermark();
+  private long nextPublish;
+
+  /**
+   * Start loading an animation file. The name "-" reads the animation from standard input, so that
+   * a program writing motions into a pipe can be played as it runs.
+   *
+   * @param inFile the input file to read from.
+   * @throws FileNotFoundException if the file is not found.
+   */
+  public ProgressiveLoader(String inFile) throws FileNotFoundException {
+    Path path = AnimationReader.STANDARD_INPUT.equals(inFile) ? null : Paths.get(inFile);
+    if (path != null && !Files.isRegularFile(path)) {
+      throw new FileNotFoundException(inFile);
+    }
+    Thread thread = new Thread(() -> this.load(path, inFile), "animation-loader");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Returns the latest snapshot of the canvas, waiting for the canvas bounds to be read first. The
+   * snapshot is not changed afterwards; a later call may return a newer one.
+   *
+   * @return the canvas as loaded so far.
+   * @throws IllegalStateException if the file could not be loaded.
+   */
+  public ICanvas getCanvas() throws IllegalStateException {
+    await(this.started);
+    Snapshot s = this.latest;
+    if (s == null) {
+      throw new IllegalStateException("Could not load animation.", this.failure);
+    }
+    return s.canvas;
+  }
+
+  /**
+   * Returns the complete canvas, waiting for the whole file to be loaded.
+   *
+   * @return the canvas with all shapes and transformations.
+   * @throws IllegalStateException if the file could not be loaded.
+   */
+  public ICanvas awaitCanvas() throws IllegalStateException {
+    await(this.finished);
+    if (this.failure != null) {
+      throw new IllegalStateException("Could not load animation.", this.failure);
+    }
+    return this.latest.canvas;
+  }
+
+  /**
+   * Returns the error that stopped the loader, if reading the file failed.
+   *
+   * @return the error, or null if the file is loaded or still loading.
+   */
+  public RuntimeException getFailure() {
+    return this.failure;
+  }
+
+  /**
+   * Determine if the whole file has been read, or reading it has failed.
+   *
+   * @return true if no more snapshots will be published.
+   */
+  public boolean isLoaded() {
+    return this.finished.getCount() == 0;
+  }
+
+  /**
+   * Determine if the latest snapshot has the final state of a frame. After the file is loaded,
+   * or if loading failed, every frame counts as loaded so that a view does not wait forever.
+   *
+   * @param frame the frame to check.
+   * @return true if the frame can be played.
+   */
+  public boolean isFrameLoaded(float frame) {
+    Snapshot s = this.latest;
+    return this.isLoaded() || (s != null && frame < s.loadedTo);
+  }
+
+  /**
+   * Read the file on the loader thread.
+   *
+   * @param path the file to read, or null for standard input.
+   * @param inFile the name of the file, for error messages.
+   */
+  private void load(Path path, String inFile) {
+    try {
+      if (path == null) {
+        AnimationReader.parseFile(System.in, new Loading());
+      } else if (CompiledAnimationFile.isCompiled(path)) {
+        this.publish(CompiledAnimationFile.read(path), Float.POSITIVE_INFINITY);
+      } else {
+        AnimationReader.parseFile(path, new Loading());
+      }
+    } catch (IOException e) {
+      this.failure = new UncheckedIOException(inFile + " could not be read.", e);
+    } catch (RuntimeException e) {
+      this.failure = e;
+    } finally {
+      this.started.countDown();
+      this.finished.countDown();
+    }
+  }
+
+  /**
+   * Make a snapshot the latest one.
+   *
+   * @param canvas the snapshot to publish.
+   * @param loadedTo the frame before which the snapshot is final.
+   */
+  private void publish(ICanvas canvas, float loadedTo) {
+    this.latest = new Snapshot(canvas, loadedTo);
+    this.started.countDown();
+  }
+
+  /** Take a snapshot if it is time for one. */
+  private void publishIfDue() {
+    long now = System.nanoTime();
+    if (now - this.nextPublish < 0) {
+      return;
+    }
+    this.publish(this.builder.snapshot(), this.watermark.getFrame());
+    long cost = System.nanoTime() - now;
+    this.nextPublish = System.nanoTime() + Math.max(PUBLISH_INTERVAL * 1_000_000, 4 * cost);
+  }
+
+  /**
+   * Wait for a latch, treating an interrupt as the end of the wait.
+   *
+   * @param latch the latch to wait for.
+   */
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** A published copy of the canvas and the frame up to which it is final. */
+  private static final class Snapshot {
+    private final ICanvas canvas;
+    private final float loadedTo;
+
+    /**
+     * Create a snapshot.
+     *
+     * @param canvas the copy of the canvas.
+     * @param loadedTo the frame before which the copy is final.
+     */
+    private Snapshot(ICanvas canvas, float loadedTo) {
+      this.canvas = canvas;
+      this.loadedTo = loadedTo;
+    }
+  }
+
+  /** Passes the file to the canvas builder and publishes snapshots as it goes. */
+  private final class Loading implements AnimationBuilder<ICanvas> {
+
+    @Override
+    public ICanvas build() {
+      ICanvas canvas = builder.build();
+      publish(canvas, Float.POSITIVE_INFINITY);
+      return canvas;
+    }
+
+    @Override
+    public AnimationBuilder<ICanvas> setBounds(int x, int y, int width, int height) {
+      builder.setBounds(x, y, width, height);
+      publish(builder.snapshot(), 0);
+      nextPublish = System.nanoTime() + PUBLISH_INTERVAL * 1_000_000;
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<ICanvas> declareShape(String name, String type) {
+      builder.declareShape(name, type);
+      watermark.declareShape(name);
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<ICanvas> addMotion(
+        String name,
+        int t1,
+        int x1,
+        int y1,
+        int w1,
+        int h1,
+        int r1,
+        int g1,
+        int b1,
+        int t2,
+        int x2,
+        int y2,
+        int w2,
+        int h2,
+        int r2,
+        int g2,
+        int b2) {
+      builder.addMotion(
+          name, t1, x1, y1, w1, h1, r1, g1, b1, t2, x2, y2, w2, h2, r2, g2, b2);
+      watermark.addMotion(name, t1);
+      publishIfDue();
+      return this;
+    }
+  }
+}
@@ -0,0 +1,342 @@
+package cs5004.animator.model.canvas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import cs5004.animator.model.shape.Shape;
+import cs5004.animator.model.transformation.FrameSink;
+import cs5004.animator.model.transformation.Transformation;
+import cs5004.animator.model.transformation.TransformationType;
+import cs5004.animator.model.transformation.dimension;
+
+/**
+ * Compiled view of the transformations of a single Shape. Transformations are grouped by the
+ * property they act on (color, position, base, height) and sorted by their starting frame, so the
+ * transformation that decides a property at a given frame is found with a binary search instead of
+ * a scan of every transformation of the shape.
+ *
+ * <p>The starts and ends of all transformations cut the frames into segments. In a segment that no
+ * transformation other than a visibility change is in progress, the shape holds its state, so a
+ * shape evaluated anywhere in such a segment does not have to be evaluated again in it.
+ */
+final class ShapeTimeline {
+  private final String identifier;
+  private final float initialX;
+  private final float initialY;
+  private final float initialBase;
+  private final float initialHeight;
+  private final int initialRGB;
+  private final Track color;
+  private final Track move;
+  private final Track base;
+  private final Track height;
+  private final Transformation visibility;
+  private final boolean hasTransformations;
+  private final float[] boundaries;
+  private final boolean[] held;
+
+  /**
+   * Compile the transformations of a shape into per-property tracks.
+   *
+   * @param shape the initial Shape object that holds the transformations.
+   */
+  ShapeTimeline(Shape shape) {
+    ArrayList<Transformation> colors = new ArrayList<>();
+    ArrayList<Transformation> moves = new ArrayList<>();
+    ArrayList<Transformation> bases = new ArrayList<>();
+    ArrayList<Transformation> heights = new ArrayList<>();
+    Transformation vis = null;
+    for (Transformation t : shape.getTransformations()) {
+      TransformationType type = t.getType();
+      if (type == TransformationType.ChangeColor) {
+        colors.add(t);
+      } else if (type == TransformationType.ChangeVis) {
+        vis = t;
+      } else if (type == TransformationType.Move) {
+        moves.add(t);
+      } else if (type == TransformationType.Resize) {
+        if (t.getDimension() == dimension.BASE) {
+          bases.add(t);
+        } else {
+          heights.add(t);
+        }
+      }
+    }
+    this.identifier = shape.getIdentifier();
+    this.initialX = shape.getPosition().getX();
+    this.initialY = shape.getPosition().getY();
+    this.initialBase = shape.getBase();
+    this.initialHeight = shape.getHeight();
+    this.initialRGB = shape.getColor().getRGB() & 0xFFFFFF;
+    this.color = new Track(colors);
+    this.move = new Track(moves);
+    this.base = new Track(bases);
+    this.height = new Track(heights);
+    this.visibility = vis;
+    this.hasTransformations = !shape.getTransformations().isEmpty();
+
+    float[] frames = new float[2 * shape.getTransformations().size()];
+    int n = 0;
+    for (Transformation t : shape.getTransformations()) {
+      frames[n++] = t.getStartFrame();
+      frames[n++] = t.getEndFrame();
+    }
+    Arrays.sort(frames);
+    int unique = 0;
+    for (int i = 0; i < n; i++) {
+      if (unique == 0 || frames[i] != frames[unique - 1]) {
+        frames[unique++] = frames[i];
+      }
+    }
+    this.boundaries = Arrays.copyOf(frames, unique);
+    // count the transformations in progress in every segment, from the changes at each boundary
+    int[] changes = new int[unique + 2];
+    for (Transformation t : shape.getTransformations()) {
+      if (t.getType() != TransformationType.ChangeVis && t.getStartFrame() < t.getEndFrame()) {
+        changes[Arrays.binarySearch(this.boundaries, t.getStartFrame()) + 1]++;
+        changes[Arrays.binarySearch(this.boundaries, t.getEndFrame()) + 1]--;
+      }
+    }
+    this.held = new boolean[unique + 1];
+    int inProgress = 0;
+    for (int k = 0; k <= unique; k++) {
+      inProgress += changes[k];
+      this.held[k] = inProgress == 0;
+    }
+  }
+
+  /**
+   * Returns the identifier of the shape this timeline was compiled from.
+   *
+   * @return the shape identifier.
+   */
+  String getIdentifier() {
+    return this.identifier;
+  }
+
+  /**
+   * Returns the first frame in which the shape is visible.
+   *
+   * @return the start of the visibility window, or 0 if the shape is never visible.
+   */
+  float getVisibleFrom() {
+    return this.visibility == null ? 0 : this.visibility.getStartFrame();
+  }
+
+  /**
+   * Returns the frame in which the shape disappears.
+   *
+   * @return the end of the visibility window, or 0 if the shape is never visible.
+   */
+  float getVisibleUntil() {
+    return this.visibility == null ? 0 : this.visibility.getEndFrame();
+  }
+
+  /**
+   * Returns the segment that contains the given frame. Segment k runs from boundary k - 1 to
+   * boundary k, the first segment starts at frame 0 and the last one never ends.
+   *
+   * @param frame the frame.
+   * @return the index of the segment.
+   */
+  private int segment(float frame) {
+    int lo = 0;
+    int hi = this.boundaries.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (this.boundaries[mid] <= frame) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Record the frames in which the shape keeps the state it has at the given frame: the segment of
+   * the frame if no transformation other than a visibility change is in progress in it, or an empty
+   * range otherwise.
+   *
+   * @param frame the frame the shape was evaluated at.
+   * @param from the first frame of the range of each shape.
+   * @param until the frame at which the range of each shape ends.
+   * @param i the index of the shape in from and until.
+   */
+  void recordHeld(float frame, float[] from, float[] until, int i) {
+    int k = this.segment(frame);
+    if (this.held[k]) {
+      from[i] = k == 0 ? 0 : this.boundaries[k - 1];
+      until[i] = k == this.boundaries.length ? Float.POSITIVE_INFINITY : this.boundaries[k];
+    } else {
+      from[i] = 0;
+      until[i] = 0;
+    }
+  }
+
+  /**
+   * Update a shape to its state at the given frame. The shape is first reset to the initial state,
+   * so the result does not depend on previously evaluated frames.
+   *
+   * @param s the shape to update.
+   * @param frame the frame to be rendered.
+   * @param sink a sink to reuse for writing to the shape.
+   * @throws IllegalArgumentException if the frame is negative.
+   */
+  void applyAtFrame(Shape s, float frame, ShapeSink sink) throws IllegalArgumentException {
+    if (frame < 0 && this.hasTransformations) {
+      throw new IllegalArgumentException("Frame cannot be negative.");
+    }
+    s.setPosition(this.initialX, this.initialY);
+    s.resize(this.initialBase, this.initialHeight);
+    if ((s.getColor().getRGB() & 0xFFFFFF) != this.initialRGB) {
+      s.setColor(this.initialRGB >> 16, (this.initialRGB >> 8) & 0xFF, this.initialRGB & 0xFF);
+    }
+    s.setVisibility(false);
+    sink.shape = s;
+    this.execute(frame, sink);
+  }
+
+  /**
+   * Write the state of the shape at the given frame into its slot of a frame buffer. Properties
+   * that no transformation has touched yet take the value of the initial shape, so the result does
+   * not depend on previously evaluated frames.
+   *
+   * @param frame the frame to be rendered.
+   * @param out the frame buffer slot of this shape.
+   * @throws IllegalArgumentException if the frame is negative.
+   */
+  void writeAtFrame(float frame, FrameBuffer.Slot out) throws IllegalArgumentException {
+    if (frame < 0 && this.hasTransformations) {
+      throw new IllegalArgumentException("Frame cannot be negative.");
+    }
+    out.setPosition(this.initialX, this.initialY);
+    out.setBase(this.initialBase);
+    out.setHeight(this.initialHeight);
+    out.setRGB(this.initialRGB);
+    out.setVisibility(false);
+    this.execute(frame, out);
+  }
+
+  /**
+   * Let the transformation that decides each property at the given frame write to a sink.
+   *
+   * @param frame the frame to be rendered.
+   * @param sink the state that receives the result.
+   */
+  private void execute(float frame, FrameSink sink) {
+    Transformation t = this.color.at(frame);
+    if (t != null) {
+      t.executeAtFrame(frame, sink);
+    }
+    if (this.visibility != null) {
+      this.visibility.executeAtFrame(frame, sink);
+    }
+    t = this.move.at(frame);
+    if (t != null) {
+      t.executeAtFrame(frame, sink);
+    }
+    t = this.base.at(frame);
+    if (t != null) {
+      t.executeAtFrame(frame, sink);
+    }
+    t = this.height.at(frame);
+    if (t != null) {
+      t.executeAtFrame(frame, sink);
+    }
+  }
+
+  /**
+   * Sink that writes the result of a transformation back into a Shape object. One sink is reused
+   * for all shapes of an evaluation; applyAtFrame points it at the shape it updates.
+   */
+  static final class ShapeSink implements FrameSink {
+    private Shape shape;
+
+    @Override
+    public void setPosition(float x, float y) {
+      this.shape.setPosition(x, y);
+    }
+
+    @Override
+    public void setBase(float base) {
+      this.shape.resize(base, this.shape.getHeight());
+    }
+
+    @Override
+    public void setHeight(float height) {
+      this.shape.resize(this.shape.getBase(), height);
+    }
+
+    @Override
+    public void setColor(int r, int g, int b) {
+      this.shape.setColor(r, g, b);
+    }
+
+    @Override
+    public void setVisibility(boolean visible) {
+      this.shape.setVisibility(visible);
+    }
+  }
+
+  /**
+   * The transformations acting on one property, sorted by starting frame. A transformation only
+   * changes its property once its start frame has been reached, and when several have been reached
+   * the one added to the shape last wins. The winner of every prefix of the sorted array is
+   * precomputed so a lookup is a single binary search.
+   */
+  private static final class Track {
+    private final float[] starts;
+    private final Transformation[] sorted;
+    private final int[] winners;
+
+    /**
+     * Sort the given transformations and precompute the winner of each prefix.
+     *
+     * @param transformations the transformations in the order they were added to the shape.
+     */
+    Track(ArrayList<Transformation> transformations) {
+      int n = transformations.size();
+      Integer[] order = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingDouble(i -> transformations.get(i).getStartFrame()));
+      this.starts = new float[n];
+      this.sorted = new Transformation[n];
+      this.winners = new int[n];
+      int winner = -1;
+      for (int i = 0; i < n; i++) {
+        this.sorted[i] = transformations.get(order[i]);
+        this.starts[i] = this.sorted[i].getStartFrame();
+        if (winner < 0 || order[i] > order[winner]) {
+          winner = i;
+        }
+        this.winners[i] = winner;
+      }
+    }
+
+    /**
+     * Find the transformation that determines this property at the given frame.
+     *
+     * @param frame the frame to be rendered.
+     * @return the transformation, or null if no transformation has started yet.
+     */
+    Transformation at(float frame) {
+      int lo = 0;
+      int hi = this.starts.length - 1;
+      int found = -1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (this.starts[mid] <= frame) {
+          found = mid;
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return found < 0 ? null : this.sorted[this.winners[found]];
+    }
+  }
+}
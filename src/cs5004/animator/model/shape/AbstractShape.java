@@ -1,10 +1,13 @@
 package cs5004.animator.model.shape;
 
 import java.awt.Color;
+import java.awt.Graphics2D;
+import java.io.IOException;
 import java.util.ArrayList;
 
 import cs5004.animator.model.transformation.ChangeVisibilityT;
 import cs5004.animator.model.transformation.Transformation;
+import cs5004.animator.util.OutputEncoder;
 
 /** Abstract class for a Shape object that stores common functionality for all shapes. */
 public abstract class AbstractShape implements Shape {
@@ -19,6 +22,10 @@ public abstract class AbstractShape implements Shape {
   protected float startFrame = 0;
   protected float endFrame = 0;
   protected boolean isInitialized;
+  // created by the first checked transformation, so copies that are only evaluated have none
+  private TransformationIndex conflicts;
+  // the transformations before this position are in the conflict index
+  private int indexed;
 
   /**
    * Constructor that is used to create an abstract shape. Is called by children of the
@@ -156,12 +163,44 @@ public abstract class AbstractShape implements Shape {
 
   @Override
   public void addTransformation(Transformation newT) throws IllegalArgumentException {
-    for (Transformation myT : this.transformations) {
-      if (myT.hasConflictingTransformation(newT)) {
-        throw new IllegalArgumentException("Conflicting Transformation - could not add.");
-      }
+    this.createIndex();
+    // unchecked transformations are indexed now, as they are known to be valid
+    for (; this.indexed < this.transformations.size(); this.indexed++) {
+      this.conflicts.add(this.transformations.get(this.indexed));
+    }
+    if (this.conflicts.hasConflict(newT)) {
+      throw new IllegalArgumentException("Conflicting Transformation - could not add.");
     }
     this.transformations.add(newT);
+    this.conflicts.add(newT);
+    this.indexed++;
+  }
+
+  @Override
+  public void addTransformationUnchecked(Transformation newT) {
+    this.transformations.add(newT);
+  }
+
+  @Override
+  public ArrayList<Integer> checkTransformations() {
+    ArrayList<Integer> conflicting = new ArrayList<>();
+    this.createIndex();
+    for (; this.indexed < this.transformations.size(); this.indexed++) {
+      Transformation t = this.transformations.get(this.indexed);
+      if (this.conflicts.hasConflict(t)) {
+        conflicting.add(this.indexed);
+      } else {
+        this.conflicts.add(t);
+      }
+    }
+    return conflicting;
+  }
+
+  /** Create the conflict index if no transformation has been checked yet. */
+  private void createIndex() {
+    if (this.conflicts == null) {
+      this.conflicts = new TransformationIndex();
+    }
   }
 
   @Override
@@ -175,6 +214,17 @@ public abstract class AbstractShape implements Shape {
     return this.transformations;
   }
 
+  @Override
+  public void fill(Graphics2D g) {
+    this.getRenderer()
+        .fill(
+            g,
+            (int) this.reference.getX(),
+            (int) this.reference.getY(),
+            (int) this.base,
+            (int) this.height);
+  }
+
   /**
    * Constructs a general string representation of a Shape. Must be given a type.
    *
@@ -182,25 +232,93 @@ public abstract class AbstractShape implements Shape {
    * @return a formatted string representation.
    */
   protected String toString(String shapeType) {
-    return String.format(
-        "Name: %s\nType: %s\nPosition: %s, Base: %s, Height: %s\nColor: %s",
-        this.identifier,
-        shapeType,
-        this.getPosition().toString(),
-        this.base,
-        this.height,
-        this.colorToString());
+    return new StringBuilder("Name: ")
+        .append(this.identifier)
+        .append("\nType: ")
+        .append(shapeType)
+        .append("\nPosition: ")
+        .append(this.getPosition().toString())
+        .append(", Base: ")
+        .append(this.base)
+        .append(", Height: ")
+        .append(this.height)
+        .append("\nColor: ")
+        .append(this.colorToString())
+        .toString();
   }
 
   /**
-   * Constructs a general description of a Shape in XML format. Must be given a type.
+   * Writes a general description of a Shape in XML format. Must be given a type.
    *
    * @param type the type of shape that is being described.
-   * @param template the template string passed by the child class.
+   * @param x the name of the attribute for the x-coordinate of the shape.
+   * @param y the name of the attribute for the y-coordinate of the shape.
+   * @param base the name of the attribute for the base of the shape.
+   * @param height the name of the attribute for the height of the shape.
    * @param delay the delay (in ms) between each frame.
-   * @return XML description of a Shape.
+   * @param out the encoder to write the XML description to.
+   * @throws IOException if the underlying writer fails.
    */
-  protected String toSVGString(String type, String template, float delay) {
+  protected void writeSVG(
+      String type, String x, String y, String base, String height, float delay, OutputEncoder out)
+      throws IOException {
+    this.writeStartTag(type, x, y, base, height, false, out);
+    for (Transformation t : this.transformations) {
+      t.writeSVG(type, delay, out);
+      out.append('\n');
+    }
+    out.append("\t</").append(type).append(">\n");
+  }
+
+  /**
+   * Writes a general description of a Shape in compact XML format, with one animation for each
+   * attribute that changes. Must be given a type.
+   *
+   * @param type the type of shape that is being described.
+   * @param x the name of the attribute for the x-coordinate of the shape.
+   * @param y the name of the attribute for the y-coordinate of the shape.
+   * @param base the name of the attribute for the base of the shape.
+   * @param height the name of the attribute for the height of the shape.
+   * @param delay the delay (in ms) between each frame.
+   * @param out the encoder to write the XML description to.
+   * @throws IOException if the underlying writer fails.
+   */
+  protected void writeCompactSVG(
+      String type, String x, String y, String base, String height, float delay, OutputEncoder out)
+      throws IOException {
+    this.writeStartTag(type, x, y, base, height, true, out);
+    float scale = type.equals("ellipse") ? 0.5f : 1;
+    CompactSVGWriter animations = new CompactSVGWriter(this.transformations, delay, out);
+    animations.writeVisibility(this.isVisible());
+    animations.writeTrack(CompactSVGWriter.X, x, 1, Math.round(this.reference.getX()));
+    animations.writeTrack(CompactSVGWriter.Y, y, 1, Math.round(this.reference.getY()));
+    animations.writeTrack(CompactSVGWriter.BASE, base, scale, Math.round(this.base * scale));
+    animations.writeTrack(CompactSVGWriter.HEIGHT, height, scale, Math.round(this.height * scale));
+    animations.writeTrack(CompactSVGWriter.COLOR, "fill", 1, this.color.getRGB() & 0xFFFFFF);
+    out.append("\t</").append(type).append(">\n");
+  }
+
+  /**
+   * Writes the start tag of the element of the shape, with its attributes at the first frame.
+   *
+   * @param type the type of shape that is being described.
+   * @param x the name of the attribute for the x-coordinate of the shape.
+   * @param y the name of the attribute for the y-coordinate of the shape.
+   * @param base the name of the attribute for the base of the shape.
+   * @param height the name of the attribute for the height of the shape.
+   * @param compact true to write the color as #RRGGBB.
+   * @param out the encoder to write the XML description to.
+   * @throws IOException if the underlying writer fails.
+   */
+  private void writeStartTag(
+      String type,
+      String x,
+      String y,
+      String base,
+      String height,
+      boolean compact,
+      OutputEncoder out)
+      throws IOException {
     float b;
     float h;
     String v;
@@ -216,24 +334,39 @@ public abstract class AbstractShape implements Shape {
     } else {
       v = "hidden";
     }
-    StringBuilder svgText = new StringBuilder();
-    svgText.append(
-        String.format(
-            template,
-            type,
-            this.identifier,
-            Math.round(this.reference.getX()),
-            Math.round(this.reference.getY()),
-            Math.round(b),
-            Math.round(h),
-            this.color.getRed(),
-            this.color.getGreen(),
-            this.color.getBlue(),
-            v));
-    this.transformations.forEach(t -> svgText.append(t.toSVGString(type, delay) + "\n"));
-    svgText.append(String.format("\t</%s>\n", type));
-
-    return svgText.toString();
+    out.append("\t<")
+        .append(type)
+        .append(" id=\"")
+        .append(this.identifier)
+        .append("\" ")
+        .append(x)
+        .append("=\"")
+        .appendInt(Math.round(this.reference.getX()))
+        .append("\" ")
+        .append(y)
+        .append("=\"")
+        .appendInt(Math.round(this.reference.getY()))
+        .append("\" ")
+        .append(base)
+        .append("=\"")
+        .appendInt(Math.round(b))
+        .append("\" ")
+        .append(height)
+        .append("=\"")
+        .appendInt(Math.round(h))
+        .append("\" fill=\"");
+    if (compact) {
+      CompactSVGWriter.appendColor(this.color.getRGB() & 0xFFFFFF, out);
+    } else {
+      out.append("rgb(")
+          .appendInt(this.color.getRed())
+          .append(", ")
+          .appendInt(this.color.getGreen())
+          .append(", ")
+          .appendInt(this.color.getBlue())
+          .append(')');
+    }
+    out.append("\" visibility=\"").append(v).append("\">\n");
   }
 
   /**
@@ -242,7 +375,7 @@ public abstract class AbstractShape implements Shape {
    * @return the string representation of the Color.
    */
   private String colorToString() {
-    return String.format(
-        "(%s, %s, %s)", this.color.getRed(), this.color.getGreen(), this.color.getBlue());
+    return "(" + this.color.getRed() + ", " + this.color.getGreen() + ", " + this.color.getBlue()
+        + ")";
   }
 }
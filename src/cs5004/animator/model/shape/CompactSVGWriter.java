@@ -0,0 +1,279 @@
+package cs5004.animator.model.shape;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cs5004.animator.model.transformation.FrameSink;
+import cs5004.animator.model.transformation.Transformation;
+import cs5004.animator.model.transformation.TransformationType;
+import cs5004.animator.util.OutputEncoder;
+
+/**
+ * Writes the animations of one shape as compact SVG. Instead of an element for every
+ * transformation, all transformations of an attribute are merged into a single animate element
+ * with a list of values and key times.
+ *
+ * <p>The track of an attribute follows the same rule as the animate elements of the full SVG, which
+ * are frozen when they end: the transformation that began last sets the attribute, and of two that
+ * begin together the later one does. So a transformation that is still running when the next one
+ * begins is cut short, and the value is held between transformations. Tracks that never differ from
+ * the attribute of the shape element are left out. The values of the transformations are read by
+ * executing them at their start and end frames.
+ */
+final class CompactSVGWriter implements FrameSink {
+  static final int X = 0;
+  static final int Y = 1;
+  static final int BASE = 2;
+  static final int HEIGHT = 3;
+  static final int COLOR = 4;
+
+  private final ArrayList<Transformation> transformations;
+  // the attributes each transformation sets, as bits
+  private final int[] sets;
+  private final float delay;
+  private final OutputEncoder out;
+  // the values set by the last transformation that was executed, with colors packed as 0xRRGGBB
+  private final float[] values = new float[5];
+  private int changed;
+  private final ArrayList<Transformation> segments = new ArrayList<>();
+  private float[] times = new float[16];
+  private float[] keyValues = new float[16];
+  private int size;
+
+  /**
+   * Create a writer for the animations of a shape.
+   *
+   * @param transformations the transformations of the shape.
+   * @param delay the delay (in ms) between each frame.
+   * @param out the encoder to write to.
+   */
+  CompactSVGWriter(List<Transformation> transformations, float delay, OutputEncoder out) {
+    this.transformations = new ArrayList<>(transformations);
+    // the sort is stable, so transformations that begin together keep their order
+    this.transformations.sort((a, b) -> Float.compare(a.getStartFrame(), b.getStartFrame()));
+    this.sets = new int[this.transformations.size()];
+    for (int i = 0; i < this.sets.length; i++) {
+      Transformation t = this.transformations.get(i);
+      this.execute(t, t.getStartFrame());
+      this.sets[i] = this.changed;
+    }
+    this.delay = delay;
+    this.out = out;
+  }
+
+  /**
+   * Write the moments the shape appears.
+   *
+   * @param visible true if the shape element is already visible.
+   * @throws IOException if the underlying writer fails.
+   */
+  void writeVisibility(boolean visible) throws IOException {
+    if (visible) {
+      return;
+    }
+    for (Transformation t : this.transformations) {
+      if (t.getType() == TransformationType.ChangeVis) {
+        this.out
+            .append("\t\t<set attributeName=\"visibility\" to=\"visible\" begin=\"")
+            .appendDecimal(t.getStartFrame() * this.delay, 1)
+            .append("ms\" fill=\"freeze\"/>\n");
+      }
+    }
+  }
+
+  /**
+   * Write the track of one attribute, unless it never differs from the shape element.
+   *
+   * @param channel X, Y, BASE, HEIGHT or COLOR.
+   * @param attribute the name of the attribute.
+   * @param scale the factor between the shape's value and the attribute.
+   * @param initial the value of the attribute in the shape element.
+   * @throws IOException if the underlying writer fails.
+   */
+  void writeTrack(int channel, String attribute, float scale, float initial) throws IOException {
+    this.buildTrack(channel, scale);
+    boolean redundant = true;
+    for (int i = 0; i < this.size; i++) {
+      redundant &= this.keyValues[i] == initial;
+    }
+    if (redundant) {
+      return;
+    }
+    float first = this.times[0];
+    float last = this.times[this.size - 1];
+    this.out.append("\t\t<animate attributeName=\"").append(attribute).append('"');
+    if (this.size == 2) {
+      this.out.append(" from=\"");
+      this.appendValue(channel, this.keyValues[0]);
+      this.out.append("\" to=\"");
+      this.appendValue(channel, this.keyValues[1]);
+    } else {
+      this.out.append(" values=\"");
+      for (int i = 0; i < this.size; i++) {
+        if (i > 0) {
+          this.out.append(';');
+        }
+        this.appendValue(channel, this.keyValues[i]);
+      }
+      // key times are rounded to the same 0.1 ms as the begin and duration
+      double duration = (double) (last - first) * this.delay;
+      int decimals = 1;
+      while (decimals < 9 && Math.pow(10, -decimals) * duration > 0.1) {
+        decimals++;
+      }
+      this.out.append("\" keyTimes=\"");
+      for (int i = 0; i < this.size; i++) {
+        if (i > 0) {
+          this.out.append(';');
+        }
+        this.out.appendDecimal((double) (this.times[i] - first) / (last - first), decimals);
+      }
+    }
+    this.out
+        .append("\" begin=\"")
+        .appendDecimal(first * this.delay, 1)
+        .append("ms\" dur=\"")
+        .appendDecimal((last - first) * this.delay, 1)
+        .append("ms\" fill=\"freeze\"/>\n");
+  }
+
+  @Override
+  public void setPosition(float x, float y) {
+    this.values[X] = x;
+    this.values[Y] = y;
+    this.changed |= 1 << X | 1 << Y;
+  }
+
+  @Override
+  public void setBase(float base) {
+    this.values[BASE] = base;
+    this.changed |= 1 << BASE;
+  }
+
+  @Override
+  public void setHeight(float height) {
+    this.values[HEIGHT] = height;
+    this.changed |= 1 << HEIGHT;
+  }
+
+  @Override
+  public void setColor(int r, int g, int b) {
+    this.values[COLOR] = r << 16 | g << 8 | b;
+    this.changed |= 1 << COLOR;
+  }
+
+  @Override
+  public void setVisibility(boolean visible) {
+    // visibility is written by writeVisibility
+  }
+
+  /**
+   * Build the key frames of the track of one attribute.
+   *
+   * @param channel X, Y, BASE, HEIGHT or COLOR.
+   * @param scale the factor between the shape's value and the attribute.
+   */
+  private void buildTrack(int channel, float scale) {
+    this.segments.clear();
+    for (int i = 0; i < this.sets.length; i++) {
+      if ((this.sets[i] & 1 << channel) != 0) {
+        this.segments.add(this.transformations.get(i));
+      }
+    }
+    this.size = 0;
+    for (int i = 0; i < this.segments.size(); i++) {
+      Transformation t = this.segments.get(i);
+      float start = t.getStartFrame();
+      float end = t.getEndFrame();
+      float next =
+          i + 1 < this.segments.size()
+              ? this.segments.get(i + 1).getStartFrame()
+              : Float.POSITIVE_INFINITY;
+      this.execute(t, start);
+      this.addKeyFrame(start, this.values[channel] * scale);
+      if (end <= next) {
+        this.execute(t, end);
+        float value = this.values[channel] * scale;
+        this.addKeyFrame(end, value);
+        if (next != Float.POSITIVE_INFINITY) {
+          // held until the next transformation begins
+          this.addKeyFrame(next, value);
+        }
+      } else {
+        // cut short by the next transformation
+        this.execute(t, next);
+        this.addKeyFrame(next, this.values[channel] * scale);
+      }
+    }
+  }
+
+  /**
+   * Execute a transformation at a frame, recording the values it sets.
+   *
+   * @param t the transformation.
+   * @param frame the frame.
+   */
+  private void execute(Transformation t, float frame) {
+    this.changed = 0;
+    t.executeAtFrame(frame, this);
+  }
+
+  /**
+   * Add a key frame to the track, leaving out the ones that do not change its shape: repeated key
+   * frames, the middle of a run of equal values, and all but the first and last of a run at the
+   * same time, where the value jumps.
+   *
+   * @param time the frame of the key frame.
+   * @param value the value of the attribute.
+   */
+  private void addKeyFrame(float time, float value) {
+    int n = this.size;
+    if (n >= 1 && this.times[n - 1] == time && this.keyValues[n - 1] == value) {
+      return;
+    }
+    boolean replace =
+        (n == 1 && this.times[0] == time)
+            || (n >= 2 && this.times[n - 2] == time && this.times[n - 1] == time)
+            || (n >= 2 && this.keyValues[n - 2] == value && this.keyValues[n - 1] == value);
+    if (replace) {
+      n--;
+    } else if (n == this.times.length) {
+      this.times = Arrays.copyOf(this.times, n * 2);
+      this.keyValues = Arrays.copyOf(this.keyValues, n * 2);
+    }
+    this.times[n] = time;
+    this.keyValues[n] = value;
+    this.size = n + 1;
+  }
+
+  /**
+   * Append a value of an attribute: colors as #RRGGBB, and numbers with at most one decimal.
+   *
+   * @param channel X, Y, BASE, HEIGHT or COLOR.
+   * @param value the value.
+   * @throws IOException if the underlying writer fails.
+   */
+  private void appendValue(int channel, float value) throws IOException {
+    if (channel == COLOR) {
+      appendColor((int) value, this.out);
+    } else {
+      this.out.appendDecimal(value, 1);
+    }
+  }
+
+  /**
+   * Append a color as #RRGGBB.
+   *
+   * @param rgb the color, packed as 0xRRGGBB.
+   * @param out the encoder to write to.
+   * @throws IOException if the underlying writer fails.
+   */
+  static void appendColor(int rgb, OutputEncoder out) throws IOException {
+    out.append('#');
+    for (int shift = 20; shift >= 0; shift -= 4) {
+      out.append(Character.forDigit(rgb >> shift & 0xF, 16));
+    }
+  }
+}
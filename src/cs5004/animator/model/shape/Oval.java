@@ -1,6 +1,8 @@
 package cs5004.animator.model.shape;
 
-import java.awt.Graphics2D;
+import java.io.IOException;
+
+import cs5004.animator.util.OutputEncoder;
 
 /**
  * This class represents an cs5004.animator.controller.model.shape.Oval shape. An oval has a center,
@@ -39,22 +41,18 @@ public class Oval extends AbstractShape {
   }
 
   @Override
-  public String toSVGString(float delay) {
+  public void writeSVG(float delay, OutputEncoder out) throws IOException {
+    super.writeSVG("ellipse", "cx", "cy", "rx", "ry", delay, out);
+  }
 
-    return super.toSVGString(
-        "ellipse",
-        "\t<%s id=\"%s\" cx=\"%d\" cy=\"%d\" rx=\"%d\" ry=\"%d\" "
-            + "fill=\"rgb(%d, %d, %d)\" visibility=\"%s\">\n",
-        delay);
+  @Override
+  public void writeCompactSVG(float delay, OutputEncoder out) throws IOException {
+    super.writeCompactSVG("ellipse", "cx", "cy", "rx", "ry", delay, out);
   }
 
   @Override
-  public void fill(Graphics2D g) {
-    g.fillOval(
-        (int) this.reference.getX(),
-        (int) this.reference.getY(),
-        (int) this.base,
-        (int) this.height);
+  public ShapeRenderer getRenderer() {
+    return ShapeRenderer.OVAL;
   }
 
   @Override
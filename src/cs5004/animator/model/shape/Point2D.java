@@ -19,7 +19,7 @@ public class Point2D {
 
   @Override
   public String toString() {
-    return String.format("(%s, %s)", this.x, this.y);
+    return "(" + this.x + ", " + this.y + ")";
   }
 
   /**
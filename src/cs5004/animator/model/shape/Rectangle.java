@@ -1,6 +1,8 @@
 package cs5004.animator.model.shape;
 
-import java.awt.Graphics2D;
+import java.io.IOException;
+
+import cs5004.animator.util.OutputEncoder;
 
 /**
  * This class represents a cs5004.animator.controller.model.shape.Rectangle shape. A rectangle has a
@@ -41,22 +43,18 @@ public class Rectangle extends AbstractShape {
   }
 
   @Override
-  public String toSVGString(float delay) {
+  public void writeSVG(float delay, OutputEncoder out) throws IOException {
+    super.writeSVG("rect", "x", "y", "width", "height", delay, out);
+  }
 
-    return super.toSVGString(
-        "rect",
-        "\t<%s id=\"%s\" x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" "
-            + "fill=\"rgb(%d, %d, %d)\" visibility=\"%s\">\n",
-        delay);
+  @Override
+  public void writeCompactSVG(float delay, OutputEncoder out) throws IOException {
+    super.writeCompactSVG("rect", "x", "y", "width", "height", delay, out);
   }
 
   @Override
-  public void fill(Graphics2D g) {
-    g.fillRect(
-        (int) this.reference.getX(),
-        (int) this.reference.getY(),
-        (int) this.base,
-        (int) this.height);
+  public ShapeRenderer getRenderer() {
+    return ShapeRenderer.RECTANGLE;
   }
 
   @Override
@@ -2,9 +2,13 @@ package cs5004.animator.model.shape;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 
 import cs5004.animator.model.transformation.Transformation;
+import cs5004.animator.util.OutputEncoder;
 
 /**
  * This interface represents a shape. A Shape has a 2D reference point for it's position, a base and
@@ -129,6 +133,24 @@ public interface Shape {
    */
   void addTransformation(Transformation transformation);
 
+  /**
+   * Adds a transformation without checking it for conflicts. Only for transformations that are
+   * known to be valid, such as those of an animation that was saved after it was built, or that
+   * are checked later with checkTransformations.
+   *
+   * @param transformation the Transformation object to add.
+   */
+  void addTransformationUnchecked(Transformation transformation);
+
+  /**
+   * Checks the transformations added without checking since the last check, each against the
+   * transformations before it. A transformation that conflicts stays in the list of
+   * transformations, but is not checked against the ones after it.
+   *
+   * @return the positions in the list of transformations of the conflicting ones, in order.
+   */
+  ArrayList<Integer> checkTransformations();
+
   /**
    * Create a ChangeVisibility transformation that defines the starting and ending frames of the
    * shape.
@@ -148,7 +170,36 @@ public interface Shape {
    * @param delay the delay (in ms) between each frame.
    * @return text as SVGView representation of the shapes with their animations
    */
-  String toSVGString(float delay);
+  default String toSVGString(float delay) {
+    StringWriter text = new StringWriter();
+    try (OutputEncoder out = new OutputEncoder(text)) {
+      this.writeSVG(delay, out);
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      throw new UncheckedIOException(e);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Writes the SVGView text output of the shape and its animations to an encoder, one element at a
+   * time.
+   *
+   * @param delay the delay (in ms) between each frame.
+   * @param out the encoder to write to.
+   * @throws IOException if the underlying writer fails.
+   */
+  void writeSVG(float delay, OutputEncoder out) throws IOException;
+
+  /**
+   * Writes compact SVG output of the shape and its animations to an encoder, with one animation
+   * for each attribute that changes instead of one for each transformation.
+   *
+   * @param delay the delay (in ms) between each frame.
+   * @param out the encoder to write to.
+   * @throws IOException if the underlying writer fails.
+   */
+  void writeCompactSVG(float delay, OutputEncoder out) throws IOException;
 
   /**
    * Draws the shape on a JPanel.
@@ -156,4 +207,11 @@ public interface Shape {
    * @param g the Graphics2D object that represents this shape.
    */
   void fill(Graphics2D g);
+
+  /**
+   * Returns the renderer that draws this type of shape.
+   *
+   * @return the renderer of the shape.
+   */
+  ShapeRenderer getRenderer();
 }
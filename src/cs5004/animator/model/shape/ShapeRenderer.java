@@ -0,0 +1,34 @@
+package cs5004.animator.model.shape;
+
+import java.awt.Graphics2D;
+
+/**
+ * Enum that defines how each type of shape is drawn. Shapes draw themselves with their renderer,
+ * and views that keep the state of shapes in a FrameBuffer draw each slot with the renderer of its
+ * shape, so both draw a shape the same way.
+ */
+public enum ShapeRenderer {
+  OVAL {
+    @Override
+    public void fill(Graphics2D g, int x, int y, int base, int height) {
+      g.fillOval(x, y, base, height);
+    }
+  },
+  RECTANGLE {
+    @Override
+    public void fill(Graphics2D g, int x, int y, int base, int height) {
+      g.fillRect(x, y, base, height);
+    }
+  };
+
+  /**
+   * Draws a shape in the current color of the graphics.
+   *
+   * @param g the graphics to draw on.
+   * @param x the x-coordinate of the reference point of the shape.
+   * @param y the y-coordinate of the reference point of the shape.
+   * @param base the base of the shape.
+   * @param height the height of the shape.
+   */
+  public abstract void fill(Graphics2D g, int x, int y, int base, int height);
+}
@@ -0,0 +1,127 @@
+package cs5004.animator.model.shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import cs5004.animator.model.transformation.AbstractTransformation;
+import cs5004.animator.model.transformation.Transformation;
+import cs5004.animator.model.transformation.TransformationType;
+import cs5004.animator.model.transformation.dimension;
+
+/**
+ * Index of the transformations of a shape, used to find conflicts without comparing a new
+ * transformation against every existing one. Transformations are grouped by type and dimension,
+ * and each group is kept sorted by end frame. An AbstractTransformation can only conflict with a
+ * transformation of its own type that starts before it ends, and a resize only with a resize of
+ * the same dimension, so only the transformations of the new transformation's group that end after
+ * it starts have to be checked. When motions are added in time order that is a binary search and
+ * a handful of comparisons, instead of a scan over every motion of the shape.
+ *
+ * <p>Transformations that do not extend AbstractTransformation may define conflicts in any way, so
+ * they are kept in a plain list that is always scanned.
+ */
+final class TransformationIndex {
+  private static final int DIMENSIONS = dimension.values().length + 1;
+
+  private final Group[] groups = new Group[TransformationType.values().length * DIMENSIONS];
+  private final ArrayList<Transformation> others = new ArrayList<>();
+
+  /**
+   * Determine if any transformation in the index conflicts with the given one.
+   *
+   * @param newT the transformation that is about to be added.
+   * @return true if an existing transformation conflicts with it, false otherwise.
+   */
+  boolean hasConflict(Transformation newT) {
+    for (Transformation t : this.others) {
+      if (t.hasConflictingTransformation(newT)) {
+        return true;
+      }
+    }
+    if (newT.getType() == null) {
+      return false;
+    }
+    Group group = this.groups[key(newT)];
+    return group != null && group.hasConflict(newT);
+  }
+
+  /**
+   * Add a transformation to the index.
+   *
+   * @param t the transformation that was added to the shape.
+   */
+  void add(Transformation t) {
+    if (!(t instanceof AbstractTransformation) || t.getType() == null) {
+      this.others.add(t);
+      return;
+    }
+    int key = key(t);
+    if (this.groups[key] == null) {
+      this.groups[key] = new Group();
+    }
+    this.groups[key].add(t);
+  }
+
+  /**
+   * Returns the group a transformation belongs to.
+   *
+   * @param t the transformation.
+   * @return the index of its group.
+   */
+  private static int key(Transformation t) {
+    dimension d = t.getDimension();
+    return t.getType().ordinal() * DIMENSIONS + (d == null ? 0 : d.ordinal() + 1);
+  }
+
+  /** Transformations of one type and dimension, sorted by end frame. */
+  private static final class Group {
+    private float[] ends = new float[4];
+    private Transformation[] items = new Transformation[4];
+    private int size;
+
+    /**
+     * Determine if a transformation in this group conflicts with the given one. Only the
+     * transformations that end after the new one starts are checked.
+     *
+     * @param newT the transformation that is about to be added.
+     * @return true if a transformation conflicts with it, false otherwise.
+     */
+    boolean hasConflict(Transformation newT) {
+      float start = newT.getStartFrame();
+      for (int i = this.size - 1; i >= 0 && this.ends[i] > start; i--) {
+        if (this.items[i].hasConflictingTransformation(newT)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Insert a transformation after every transformation that ends at or before it does.
+     *
+     * @param t the transformation to insert.
+     */
+    void add(Transformation t) {
+      if (this.size == this.items.length) {
+        this.ends = Arrays.copyOf(this.ends, this.size * 2);
+        this.items = Arrays.copyOf(this.items, this.size * 2);
+      }
+      float end = t.getEndFrame();
+      int low = 0;
+      int high = this.size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (this.ends[mid] <= end) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      System.arraycopy(this.ends, low, this.ends, low + 1, this.size - low);
+      System.arraycopy(this.items, low, this.items, low + 1, this.size - low);
+      this.ends[low] = end;
+      this.items[low] = t;
+      this.size++;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package cs5004.animator.model.transformation;
 
 import cs5004.animator.model.shape.Shape;
+import cs5004.animator.util.OutputEncoder;
 
 /**
  * Abstract class for the Transformation interface that contains common functionality for all
@@ -8,7 +9,7 @@ import cs5004.animator.model.shape.Shape;
  */
 public abstract class AbstractTransformation<T> implements Transformation<T> {
 
-  protected final Shape initialShape;
+  protected final String identifier;
   protected final float startFrame;
   protected final float endFrame;
 
@@ -30,7 +31,7 @@ public abstract class AbstractTransformation<T> implements Transformation<T> {
     if (startFrame > endFrame) {
       throw new IllegalArgumentException("Start frame must come before end frame.");
     }
-    this.initialShape = shape.copy();
+    this.identifier = shape.getIdentifier();
     this.startFrame = startFrame;
     this.endFrame = endFrame;
   }
@@ -47,10 +48,11 @@ public abstract class AbstractTransformation<T> implements Transformation<T> {
    * @return String representation.
    */
   protected String toString(String action, String startVal, String endVal) {
-    String id = this.initialShape.getIdentifier();
-    return String.format(
-        "Shape %s %s from %s to %s from t=%.2f to t=%.2f",
-        id, action, startVal, endVal, this.startFrame, this.endFrame);
+    StringBuilder sb = new StringBuilder("Shape ");
+    sb.append(this.identifier).append(' ').append(action);
+    sb.append(" from ").append(startVal).append(" to ").append(endVal).append(" from t=");
+    OutputEncoder.appendFixed(sb, this.startFrame, 2).append(" to t=");
+    return OutputEncoder.appendFixed(sb, this.endFrame, 2).toString();
   }
 
   @Override
@@ -1,8 +1,10 @@
 package cs5004.animator.model.transformation;
 
 import java.awt.Color;
+import java.io.IOException;
 
 import cs5004.animator.model.shape.Shape;
+import cs5004.animator.util.OutputEncoder;
 
 /** Changes the color of a Shape over a specified range of frames. */
 public class ChangeColorT extends AbstractTransformation<int[]> {
@@ -63,7 +65,10 @@ public class ChangeColorT extends AbstractTransformation<int[]> {
    * @return string in the format (r, g, b).
    */
   private String toStringHelp(int r, int g, int b) {
-    return String.format("(%d, %d, %d)", r, g, b);
+    StringBuilder sb = new StringBuilder("(");
+    OutputEncoder.appendInt(sb, r).append(", ");
+    OutputEncoder.appendInt(sb, g).append(", ");
+    return OutputEncoder.appendInt(sb, b).append(')').toString();
   }
 
   @Override
@@ -74,20 +79,24 @@ public class ChangeColorT extends AbstractTransformation<int[]> {
   }
 
   @Override
-  public String toSVGString(String type, float delay) {
-
-    return String.format(
-        "\t\t<animate attributeName=\"fill\" "
-            + "attributeType=\"XML\" from=\"rgb(%d, %d, %d)\" to=\"rgb(%d, %d, %d)\" "
-            + "begin=\"%.1fms\" dur=\"%.1fms\" fill=\"freeze\"/>\n",
-        this.startColor.getRed(),
-        this.startColor.getGreen(),
-        this.startColor.getBlue(),
-        this.endColor.getRed(),
-        this.endColor.getGreen(),
-        this.endColor.getBlue(),
-        this.startFrame * delay,
-        (this.endFrame - this.startFrame) * delay);
+  public void writeSVG(String type, float delay, OutputEncoder out) throws IOException {
+    out.append("\t\t<animate attributeName=\"fill\" attributeType=\"XML\" from=\"rgb(")
+        .appendInt(this.startColor.getRed())
+        .append(", ")
+        .appendInt(this.startColor.getGreen())
+        .append(", ")
+        .appendInt(this.startColor.getBlue())
+        .append(")\" to=\"rgb(")
+        .appendInt(this.endColor.getRed())
+        .append(", ")
+        .appendInt(this.endColor.getGreen())
+        .append(", ")
+        .appendInt(this.endColor.getBlue())
+        .append(")\" begin=\"")
+        .appendFixed(this.startFrame * delay, 1)
+        .append("ms\" dur=\"")
+        .appendFixed((this.endFrame - this.startFrame) * delay, 1)
+        .append("ms\" fill=\"freeze\"/>\n");
   }
 
   @Override
@@ -125,4 +134,19 @@ public class ChangeColorT extends AbstractTransformation<int[]> {
 
     return new int[] {newR, newG, newB};
   }
+
+  @Override
+  public void executeAtFrame(float frame, FrameSink sink) {
+    if (frame < 0) {
+      throw new IllegalArgumentException("Frame cannot be negative.");
+    }
+    if (frame >= this.startFrame) {
+      sink.setColor(
+          (int) this.getValueAtFrame(frame, 0, this.startColor.getRed(), this.endColor.getRed()),
+          (int)
+              this.getValueAtFrame(
+                  frame, 0, this.startColor.getGreen(), this.endColor.getGreen()),
+          (int) this.getValueAtFrame(frame, 0, this.startColor.getBlue(), this.endColor.getBlue()));
+    }
+  }
 }
@@ -1,6 +1,9 @@
 package cs5004.animator.model.transformation;
 
+import java.io.IOException;
+
 import cs5004.animator.model.shape.Shape;
+import cs5004.animator.util.OutputEncoder;
 
 /** Transformation that changes the visibility of a Shape at the appropriate frame(s). */
 public class ChangeVisibilityT extends AbstractTransformation<Boolean> {
@@ -18,18 +21,18 @@ public class ChangeVisibilityT extends AbstractTransformation<Boolean> {
 
   @Override
   public String toString() {
-    return String.format(
-        "Shape %s appears at t=%.2f and disappears at t=%.2f",
-        this.initialShape.getIdentifier(), this.startFrame, this.endFrame);
+    StringBuilder sb = new StringBuilder("Shape ");
+    sb.append(this.identifier).append(" appears at t=");
+    OutputEncoder.appendFixed(sb, this.startFrame, 2).append(" and disappears at t=");
+    return OutputEncoder.appendFixed(sb, this.endFrame, 2).toString();
   }
 
   @Override
-  public String toSVGString(String type, float delay) {
-    return String.format(
-        "\t\t<animate attributeName=\"visibility\" "
-            + "attributeType=\"XML\" from=\"hidden\" to=\"visible\" begin=\"%.1fms\" "
-            + "dur=\"1ms\" fill=\"freeze\"/>\n",
-        this.startFrame * delay);
+  public void writeSVG(String type, float delay, OutputEncoder out) throws IOException {
+    out.append("\t\t<animate attributeName=\"visibility\" attributeType=\"XML\" from=\"hidden\" ")
+        .append("to=\"visible\" begin=\"")
+        .appendFixed(this.startFrame * delay, 1)
+        .append("ms\" dur=\"1ms\" fill=\"freeze\"/>\n");
   }
 
   @Override
@@ -51,4 +54,12 @@ public class ChangeVisibilityT extends AbstractTransformation<Boolean> {
     }
     return frame >= this.startFrame && frame < this.endFrame;
   }
+
+  @Override
+  public void executeAtFrame(float frame, FrameSink sink) {
+    if (frame < 0) {
+      throw new IllegalArgumentException("Frame cannot be negative.");
+    }
+    sink.setVisibility(frame >= this.startFrame && frame < this.endFrame);
+  }
 }
@@ -0,0 +1,47 @@
+package cs5004.animator.model.transformation;
+
+/**
+ * Receives the state of a Shape that a Transformation computes at a given frame. Implementations
+ * are mutable and reused between frames, so a Transformation can report its result without
+ * creating any objects.
+ */
+public interface FrameSink {
+
+  /**
+   * Set the position of the shape.
+   *
+   * @param x the x-coordinate of the reference point.
+   * @param y the y-coordinate of the reference point.
+   */
+  void setPosition(float x, float y);
+
+  /**
+   * Set the base of the shape.
+   *
+   * @param base the new base.
+   */
+  void setBase(float base);
+
+  /**
+   * Set the height of the shape.
+   *
+   * @param height the new height.
+   */
+  void setHeight(float height);
+
+  /**
+   * Set the color of the shape.
+   *
+   * @param r the red value (0 - 255).
+   * @param g the green value (0 - 255).
+   * @param b the blue value (0 - 255).
+   */
+  void setColor(int r, int g, int b);
+
+  /**
+   * Set the visibility of the shape.
+   *
+   * @param visible true if the shape should appear, false otherwise.
+   */
+  void setVisibility(boolean visible);
+}
@@ -1,7 +1,10 @@
 package cs5004.animator.model.transformation;
 
+import java.io.IOException;
+
 import cs5004.animator.model.shape.Point2D;
 import cs5004.animator.model.shape.Shape;
+import cs5004.animator.util.OutputEncoder;
 
 /** Moves a Shape from one position to another over a specified number of frames. */
 public class MoveT extends AbstractTransformation<float[]> {
@@ -54,7 +57,7 @@ public class MoveT extends AbstractTransformation<float[]> {
   }
 
   @Override
-  public String toSVGString(String type, float delay) {
+  public void writeSVG(String type, float delay, OutputEncoder out) throws IOException {
     String x;
     String y;
     if (type.equals("ellipse")) {
@@ -64,29 +67,34 @@ public class MoveT extends AbstractTransformation<float[]> {
       x = "x";
       y = "y";
     }
-    StringBuilder svgText = new StringBuilder();
-    svgText.append(
-        String.format(
-            "\t\t<animate attributeName=\"%s\" "
-                + "attributeType=\"XML\" from=\"%.1f\" to=\"%.1f\" begin=\"%.1fms\" "
-                + "dur=\"%.1fms\" fill=\"freeze\"/>\n",
-            x,
-            this.startPos.getX(),
-            this.endPos.getX(),
-            this.startFrame * delay,
-            (this.endFrame - this.startFrame) * delay));
-    svgText.append(
-        String.format(
-            "\t\t<animate attributeName=\"%s\" "
-                + "attributeType=\"XML\" from=\"%.1f\" to=\"%.1f\" begin=\"%.1fms\" "
-                + "dur=\"%.1fms\" fill=\"freeze\"/>",
-            y,
-            this.startPos.getY(),
-            this.endPos.getY(),
-            this.startFrame * delay,
-            (this.endFrame - this.startFrame) * delay));
+    this.writeAnimate(x, this.startPos.getX(), this.endPos.getX(), delay, out);
+    out.append('\n');
+    this.writeAnimate(y, this.startPos.getY(), this.endPos.getY(), delay, out);
+  }
 
-    return svgText.toString();
+  /**
+   * Writes the animate element for one coordinate of the move.
+   *
+   * @param attribute the name of the coordinate attribute.
+   * @param from the starting value of the coordinate.
+   * @param to the ending value of the coordinate.
+   * @param delay the delay (in ms) between each frame.
+   * @param out the encoder to write to.
+   * @throws IOException if the underlying writer fails.
+   */
+  private void writeAnimate(String attribute, float from, float to, float delay, OutputEncoder out)
+      throws IOException {
+    out.append("\t\t<animate attributeName=\"")
+        .append(attribute)
+        .append("\" attributeType=\"XML\" from=\"")
+        .appendFixed(from, 1)
+        .append("\" to=\"")
+        .appendFixed(to, 1)
+        .append("\" begin=\"")
+        .appendFixed(this.startFrame * delay, 1)
+        .append("ms\" dur=\"")
+        .appendFixed((this.endFrame - this.startFrame) * delay, 1)
+        .append("ms\" fill=\"freeze\"/>");
   }
 
   @Override
@@ -133,4 +141,16 @@ public class MoveT extends AbstractTransformation<float[]> {
 
     return new float[] {newX, newY};
   }
+
+  @Override
+  public void executeAtFrame(float frame, FrameSink sink) {
+    if (frame < 0) {
+      throw new IllegalArgumentException("Frame cannot be negative.");
+    }
+    if (frame >= this.startFrame) {
+      sink.setPosition(
+          this.getValueAtFrame(frame, 0, this.startPos.getX(), this.endPos.getX()),
+          this.getValueAtFrame(frame, 0, this.startPos.getY(), this.endPos.getY()));
+    }
+  }
 }
@@ -1,6 +1,9 @@
 package cs5004.animator.model.transformation;
 
+import java.io.IOException;
+
 import cs5004.animator.model.shape.Shape;
+import cs5004.animator.util.OutputEncoder;
 
 /** Changes the size of a Shape over a specified range of frames. */
 public class ResizeT extends AbstractTransformation<Float> {
@@ -8,6 +11,8 @@ public class ResizeT extends AbstractTransformation<Float> {
   private final dimension baseOrHeight;
   private final float initialValue;
   private final float finalValue;
+  private final float shapeBase;
+  private final float shapeHeight;
 
   /**
    * Constructor for the ResizeT class.
@@ -29,6 +34,8 @@ public class ResizeT extends AbstractTransformation<Float> {
     this.baseOrHeight = dimension;
     this.initialValue = initialValue;
     this.finalValue = finalValue;
+    this.shapeBase = shape.getBase();
+    this.shapeHeight = shape.getHeight();
   }
 
   /**
@@ -40,7 +47,9 @@ public class ResizeT extends AbstractTransformation<Float> {
    * @return String message to be used in toString.
    */
   private String toStringHelp(float base, float height) {
-    return String.format("Base: %.1f, Height: %.1f", base, height);
+    StringBuilder sb = new StringBuilder("Base: ");
+    OutputEncoder.appendFixed(sb, base, 1).append(", Height: ");
+    return OutputEncoder.appendFixed(sb, height, 1).toString();
   }
 
   /**
@@ -54,18 +63,18 @@ public class ResizeT extends AbstractTransformation<Float> {
 
   @Override
   public String toString() {
-    String pre = toStringHelp(this.initialShape.getBase(), this.initialShape.getHeight());
+    String pre = toStringHelp(this.shapeBase, this.shapeHeight);
     String post;
     if (this.baseOrHeight == dimension.HEIGHT) {
-      post = toStringHelp(this.initialShape.getBase(), finalValue);
+      post = toStringHelp(this.shapeBase, finalValue);
     } else {
-      post = toStringHelp(finalValue, this.initialShape.getHeight());
+      post = toStringHelp(finalValue, this.shapeHeight);
     }
     return super.toString("Scales", pre, post);
   }
 
   @Override
-  public String toSVGString(String type, float delay) {
+  public void writeSVG(String type, float delay, OutputEncoder out) throws IOException {
     String base;
     String height;
     if (type.equals("ellipse")) {
@@ -75,32 +84,17 @@ public class ResizeT extends AbstractTransformation<Float> {
       base = "width";
       height = "height";
     }
-    StringBuilder svgText = new StringBuilder();
-    if (this.baseOrHeight == dimension.HEIGHT) {
-      svgText.append(
-          String.format(
-              "\t\t<animateTransform attributeName=\"%s\" "
-                  + "attributeType=\"XML\" from=\"%.1f\" to=\"%.1f\" begin=\"%.1fms\" "
-                  + "dur=\"%.1fms\" fill=\"freeze\"/>",
-              height,
-              this.initialValue,
-              this.finalValue,
-              this.startFrame * delay,
-              (this.endFrame - this.startFrame) * delay));
-    } else {
-      svgText.append(
-          String.format(
-              "\t\t<animateTransform attributeName=\"%s\" "
-                  + "attributeType=\"XML\" from=\"%.1f\" to=\"%.1f\" begin=\"%.1fms\" "
-                  + "dur=\"%.1fms\" fill=\"freeze\"/>",
-              base,
-              this.initialValue,
-              this.finalValue,
-              this.startFrame * delay,
-              (this.endFrame - this.startFrame) * delay));
-    }
-
-    return svgText.toString();
+    out.append("\t\t<animateTransform attributeName=\"")
+        .append(this.baseOrHeight == dimension.HEIGHT ? height : base)
+        .append("\" attributeType=\"XML\" from=\"")
+        .appendFixed(this.initialValue, 1)
+        .append("\" to=\"")
+        .appendFixed(this.finalValue, 1)
+        .append("\" begin=\"")
+        .appendFixed(this.startFrame * delay, 1)
+        .append("ms\" dur=\"")
+        .appendFixed((this.endFrame - this.startFrame) * delay, 1)
+        .append("ms\" fill=\"freeze\"/>");
   }
 
   @Override
@@ -128,4 +122,19 @@ public class ResizeT extends AbstractTransformation<Float> {
       return this.getValueAtFrame(frame, s.getBase(), this.initialValue, this.finalValue);
     }
   }
+
+  @Override
+  public void executeAtFrame(float frame, FrameSink sink) {
+    if (frame < 0) {
+      throw new IllegalArgumentException("Frame cannot be negative.");
+    }
+    if (frame >= this.startFrame) {
+      float value = this.getValueAtFrame(frame, 0, this.initialValue, this.finalValue);
+      if (this.baseOrHeight == dimension.HEIGHT) {
+        sink.setHeight(value);
+      } else {
+        sink.setBase(value);
+      }
+    }
+  }
 }
@@ -1,6 +1,11 @@
 package cs5004.animator.model.transformation;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
 import cs5004.animator.model.shape.Shape;
+import cs5004.animator.util.OutputEncoder;
 
 /**
  * Transformation interface that defines behavior shared by all transformation objects. A
@@ -44,6 +49,17 @@ public interface Transformation<T> {
    */
   T executeAtFrame(Shape s, float frame) throws IllegalArgumentException;
 
+  /**
+   * Write the state of the Shape at the current frame into a sink. Nothing is written if the
+   * transformation has not started yet at the given frame, except for visibility which is always
+   * written. Unlike executeAtFrame(Shape, float), no objects are created.
+   *
+   * @param frame the frame to be rendered.
+   * @param sink the mutable state that receives the result.
+   * @throws IllegalArgumentException if the given frame is negative.
+   */
+  void executeAtFrame(float frame, FrameSink sink) throws IllegalArgumentException;
+
   /**
    * Return the starting frame of the transformation.
    *
@@ -79,5 +95,25 @@ public interface Transformation<T> {
    * @param delay the delay (in ms) between each frame.
    * @return text as SVGView representation of the transformation.
    */
-  String toSVGString(String type, float delay);
+  default String toSVGString(String type, float delay) {
+    StringWriter text = new StringWriter();
+    try (OutputEncoder out = new OutputEncoder(text)) {
+      this.writeSVG(type, delay, out);
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      throw new UncheckedIOException(e);
+    }
+    return text.toString();
+  }
+
+  /**
+   * Writes the SVGView text output of the transformation to an encoder, without building it as a
+   * String first.
+   *
+   * @param type The type of shape.
+   * @param delay the delay (in ms) between each frame.
+   * @param out the encoder to write to.
+   * @throws IOException if the underlying writer fails.
+   */
+  void writeSVG(String type, float delay, OutputEncoder out) throws IOException;
 }
@@ -8,6 +8,9 @@ import java.io.FileNotFoundException;
  * @param <Doc> the model interface.
  */
 public interface AnimationBuilder<Doc> {
+  /** Number of ints that make up one motion in {@link AnimationBuilder#addMotions}. */
+  int MOTION_SIZE = 16;
+
   /**
    * Constructs a final document.
    *
@@ -77,4 +80,40 @@ public interface AnimationBuilder<Doc> {
       int r2,
       int g2,
       int b2);
+
+  /**
+   * Adds several transformations of the same shape to the growing document, in order. Each motion
+   * is {@link #MOTION_SIZE} consecutive ints, in the same order as the arguments of
+   * {@link AnimationBuilder#addMotion}: t1, x1, y1, w1, h1, r1, g1, b1, t2, x2, y2, w2, h2, r2, g2,
+   * b2. By default every motion is passed to addMotion; builders may add them faster in bulk.
+   *
+   * @param name The name of the shape (added with {@link AnimationBuilder#declareShape})
+   * @param motions The packed motions
+   * @param offset The index of the first int of the first motion
+   * @param count The number of motions
+   * @return This {@link AnimationBuilder}
+   */
+  default AnimationBuilder<Doc> addMotions(String name, int[] motions, int offset, int count) {
+    for (int i = offset; i < offset + count * MOTION_SIZE; i += MOTION_SIZE) {
+      this.addMotion(
+          name, motions[i], motions[i + 1], motions[i + 2], motions[i + 3], motions[i + 4],
+          motions[i + 5], motions[i + 6], motions[i + 7], motions[i + 8], motions[i + 9],
+          motions[i + 10], motions[i + 11], motions[i + 12], motions[i + 13], motions[i + 14],
+          motions[i + 15]);
+    }
+    return this;
+  }
+
+  /**
+   * Gives the input lines of the motions passed to the next call to addMotions, for builders that
+   * report errors by line. The reader calls it before every call to addMotions; by default the
+   * lines are ignored.
+   *
+   * @param lines The lines, counting from 1, on which the motions start
+   * @param offset The index in lines of the line of the first motion
+   * @return This {@link AnimationBuilder}
+   */
+  default AnimationBuilder<Doc> setMotionLines(int[] lines, int offset) {
+    return this;
+  }
 }
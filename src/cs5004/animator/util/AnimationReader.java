@@ -1,12 +1,48 @@
 package cs5004.animator.util;
 
+import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Objects;
-import java.util.Scanner;
-import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 /** A helper to read animation data and construct an animation from it. */
 public class AnimationReader {
+  /** Size in bytes from which parseFile(Path, AnimationBuilder) reads a file in parallel. */
+  public static final long PARALLEL_THRESHOLD = 2L * ChunkedFileReader.CHUNK_SIZE;
+  /** Input file name that stands for standard input. */
+  public static final String STANDARD_INPUT = "-";
+
+  private static final int GZIP_MAGIC = 0x1F8B;
+  private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+  private static final String[] MOTION_FIELDS = {
+    "initial time",
+    "initial x-coordinate",
+    "initial y-coordinate",
+    "initial width",
+    "initial height",
+    "initial red value",
+    "initial green value",
+    "initial blue value",
+    "final time",
+    "final x-coordinate",
+    "final y-coordinate",
+    "final width",
+    "final height",
+    "final red value",
+    "final green value",
+    "final blue value",
+  };
+
   /**
    * A factory for producing new animations, given a source of shapes and a builder for constructing
    * animations.
@@ -32,29 +68,160 @@ public class AnimationReader {
       throws FileNotFoundException {
     Objects.requireNonNull(readable, "Must have non-null readable source");
     Objects.requireNonNull(builder, "Must provide a non-null AnimationBuilder");
-    Scanner s = new Scanner(readable);
-    // Split at whitespace, and ignore # comment lines
-    s.useDelimiter(Pattern.compile("(\\p{Space}+|#.*)+"));
-    while (s.hasNext()) {
-      String word = s.next();
-      switch (word) {
-        case "canvas":
-          readCanvas(s, builder);
-          break;
-        case "shape":
-          readShape(s, builder);
-          break;
-        case "motion":
-          readMotion(s, builder);
-          break;
-        default:
-          throw new IllegalStateException("Unexpected keyword: " + word + s.nextLine());
+    return parse(new ReadableTokenizer(readable), builder);
+  }
+
+  /**
+   * Reads an animation from a stream of bytes, in the same format as {@link #parseFile(Readable,
+   * AnimationBuilder)}, with names read as UTF-8. A gzip-compressed stream is decompressed as it
+   * is read. The stream is tokenized as it arrives, so motions written to a pipe are passed to the
+   * builder without waiting for the end of the input. The stream is not closed.
+   *
+   * @param in The stream holding the animation, such as System.in
+   * @param builder A builder for helping to construct a new animation
+   * @param <Doc> The main cs5004.animator.controller.model interface type describing animations
+   * @return the animation built by the builder
+   * @throws IOException if the stream cannot be read or is not valid gzip data
+   */
+  public static <Doc> Doc parseFile(InputStream in, AnimationBuilder<Doc> builder)
+      throws IOException {
+    Objects.requireNonNull(in, "Must have non-null input stream");
+    Objects.requireNonNull(builder, "Must provide a non-null AnimationBuilder");
+    InputStream buffered =
+        in.markSupported() ? in : new BufferedInputStream(in, STREAM_BUFFER_SIZE);
+    buffered.mark(2);
+    int magic = buffered.read() << 8 | buffered.read();
+    buffered.reset();
+    InputStream text =
+        magic == GZIP_MAGIC ? new GZIPInputStream(buffered, STREAM_BUFFER_SIZE) : buffered;
+    try {
+      return parse(new InputStreamTokenizer(text), builder);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Reads an animation from a file, in the same format as {@link #parseFile(Readable,
+   * AnimationBuilder)}. The file is memory-mapped and tokenized directly from its bytes, without
+   * decoding it to characters first; names are read as UTF-8. Files larger than 2 GB are mapped in
+   * several windows. Files of at least PARALLEL_THRESHOLD bytes are read in parallel when more than
+   * one processor is available. A gzip-compressed file, such as a .gz file, is decompressed as a
+   * stream instead, and always read sequentially.
+   *
+   * @param path The file holding the animation
+   * @param builder A builder for helping to construct a new animation
+   * @param <Doc> The main cs5004.animator.controller.model interface type describing animations
+   * @return the animation built by the builder
+   * @throws IOException if the file cannot be opened or mapped
+   */
+  public static <Doc> Doc parseFile(Path path, AnimationBuilder<Doc> builder) throws IOException {
+    Objects.requireNonNull(path, "Must have non-null path");
+    boolean parallel =
+        Runtime.getRuntime().availableProcessors() > 1
+            && Files.size(path) >= PARALLEL_THRESHOLD;
+    return parseFile(path, builder, parallel);
+  }
+
+  /**
+   * Reads an animation from a memory-mapped file, optionally in parallel. In parallel mode the
+   * file is cut into chunks at lines that start with a keyword, the chunks are tokenized on the
+   * common ForkJoinPool, and their lines are passed to the builder on the calling thread in file
+   * order. The builder sees exactly the same calls, in the same order, as in sequential mode. A
+   * gzip-compressed file cannot be cut into chunks, so it is always read sequentially.
+   *
+   * @param path The file holding the animation
+   * @param builder A builder for helping to construct a new animation
+   * @param parallel true to tokenize chunks of the file in parallel
+   * @param <Doc> The main cs5004.animator.controller.model interface type describing animations
+   * @return the animation built by the builder
+   * @throws IOException if the file cannot be opened or mapped
+   */
+  public static <Doc> Doc parseFile(Path path, AnimationBuilder<Doc> builder, boolean parallel)
+      throws IOException {
+    Objects.requireNonNull(path, "Must have non-null path");
+    Objects.requireNonNull(builder, "Must provide a non-null AnimationBuilder");
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (isGzip(channel)) {
+        return parseFile(Channels.newInputStream(channel), builder);
       }
+      if (parallel) {
+        return new ChunkedFileReader(channel, ChunkedFileReader.CHUNK_SIZE).read(builder);
+      }
+      return parse(new MappedFileTokenizer(channel, MappedFileTokenizer.WINDOW_SIZE), builder);
+    }
+  }
+
+  /**
+   * Determine if a file starts with the gzip magic number.
+   *
+   * @param channel the file, opened for reading.
+   * @return true if the file is gzip-compressed.
+   * @throws IOException if the file cannot be read.
+   */
+  private static boolean isGzip(FileChannel channel) throws IOException {
+    ByteBuffer magic = ByteBuffer.allocate(2);
+    while (magic.hasRemaining() && channel.read(magic, magic.position()) >= 0) {
+      // a read may return fewer bytes than asked for
     }
+    return !magic.hasRemaining() && (magic.getShort(0) & 0xFFFF) == GZIP_MAGIC;
+  }
+
+  /**
+   * Reads every line of an animation from a tokenizer and passes it to the builder.
+   *
+   * @param s the tokenizer over the input.
+   * @param builder A builder for helping to construct a new animation
+   * @param <Doc> The main cs5004.animator.controller.model interface type describing animations
+   * @return the animation built by the builder
+   * @throws FileNotFoundException if the builder throws it
+   */
+  static <Doc> Doc parse(AnimationTokenizer s, AnimationBuilder<Doc> builder)
+      throws FileNotFoundException {
+    readRecords(s, builder);
     return builder.build();
   }
 
-  private static <Doc> void readCanvas(Scanner s, AnimationBuilder<Doc> builder) {
+  /**
+   * Reads every line of an animation from a tokenizer and passes it to the builder, without
+   * building the animation.
+   *
+   * @param s the tokenizer over the input.
+   * @param builder A builder for helping to construct a new animation
+   * @param <Doc> The main cs5004.animator.controller.model interface type describing animations
+   */
+  static <Doc> void readRecords(AnimationTokenizer s, AnimationBuilder<Doc> builder) {
+    // consecutive motions of one shape are passed to the builder together, but not held while
+    // the input waits for more to arrive, so a piped animation plays as it is written
+    MotionBatch<Doc> motions = new MotionBatch<>(builder);
+    s.setBeforeWait(motions::flushIfIdle);
+    try {
+      // Split at whitespace, and ignore # comment lines
+      while (s.hasNext()) {
+        String word = s.next();
+        switch (word) {
+          case "canvas":
+            motions.flush();
+            readCanvas(s, builder);
+            break;
+          case "shape":
+            motions.flush();
+            readShape(s, builder);
+            break;
+          case "motion":
+            readMotion(s, motions);
+            break;
+          default:
+            throw new IllegalStateException("Unexpected keyword: " + word + s.nextLine());
+        }
+      }
+    } finally {
+      // the motions read before an error are passed on, as if they had not been batched
+      motions.flush();
+    }
+  }
+
+  private static <Doc> void readCanvas(AnimationTokenizer s, AnimationBuilder<Doc> builder) {
     int[] vals = new int[4];
     String[] fieldNames = {"left", "top", "width", "height"};
     for (int i = 0; i < 4; i++) {
@@ -63,7 +230,7 @@ public class AnimationReader {
     builder.setBounds(vals[0], vals[1], vals[2], vals[3]);
   }
 
-  private static <Doc> void readShape(Scanner s, AnimationBuilder<Doc> builder) {
+  private static <Doc> void readShape(AnimationTokenizer s, AnimationBuilder<Doc> builder) {
     String name;
     String type;
     if (s.hasNext()) {
@@ -79,42 +246,24 @@ public class AnimationReader {
     builder.declareShape(name, type);
   }
 
-  private static <Doc> void readMotion(Scanner s, AnimationBuilder<Doc> builder) {
-    String[] fieldNames =
-        new String[] {
-          "initial time",
-          "initial x-coordinate",
-          "initial y-coordinate",
-          "initial width",
-          "initial height",
-          "initial red value",
-          "initial green value",
-          "initial blue value",
-          "final time",
-          "final x-coordinate",
-          "final y-coordinate",
-          "final width",
-          "final height",
-          "final red value",
-          "final green value",
-          "final blue value",
-        };
-    int[] vals = new int[16];
+  private static <Doc> void readMotion(AnimationTokenizer s, MotionBatch<Doc> motions) {
+    // the line of the keyword, which is read before the name
+    int line = s.line();
     String name;
     if (s.hasNext()) {
       name = s.next();
     } else {
       throw new IllegalStateException("Motion: Expected a shape name, but no more input available");
     }
-    for (int i = 0; i < 16; i++) {
-      vals[i] = getInt(s, "Motion", fieldNames[i]);
+    int[] vals = motions.add(name, line);
+    int at = motions.size * AnimationBuilder.MOTION_SIZE;
+    for (int i = 0; i < AnimationBuilder.MOTION_SIZE; i++) {
+      vals[at + i] = getInt(s, "Motion", MOTION_FIELDS[i]);
     }
-    builder.addMotion(
-        name, vals[0], vals[1], vals[2], vals[3], vals[4], vals[5], vals[6], vals[7], vals[8],
-        vals[9], vals[10], vals[11], vals[12], vals[13], vals[14], vals[15]);
+    motions.commit();
   }
 
-  private static int getInt(Scanner s, String label, String fieldName) {
+  private static int getInt(AnimationTokenizer s, String label, String fieldName) {
     if (s.hasNextInt()) {
       return s.nextInt();
     } else if (s.hasNext()) {
@@ -126,4 +275,71 @@ public class AnimationReader {
               "%s: expected integer for %s, but no more input available", label, fieldName));
     }
   }
+
+  /**
+   * Motions of one shape that have been read but not yet passed to the builder.
+   *
+   * @param <Doc> the type of document the builder builds.
+   */
+  private static final class MotionBatch<Doc> {
+    private static final int CAPACITY = 256;
+
+    private final AnimationBuilder<Doc> builder;
+    private final int[] motions = new int[CAPACITY * AnimationBuilder.MOTION_SIZE];
+    private final int[] lines = new int[CAPACITY];
+    private String name;
+    private int size;
+    private boolean reading;
+
+    /**
+     * Create an empty batch.
+     *
+     * @param builder the builder that receives the motions.
+     */
+    MotionBatch(AnimationBuilder<Doc> builder) {
+      this.builder = builder;
+    }
+
+    /**
+     * Make room for a motion of a shape, passing the batch on first if it is full or holds
+     * another shape. The caller fills in the motion and then calls commit.
+     *
+     * @param name the name of the shape.
+     * @param line the line on which the motion starts.
+     * @return the array to write the motion into, at index size * MOTION_SIZE.
+     */
+    int[] add(String name, int line) {
+      if (this.size == CAPACITY || (this.size > 0 && !this.name.equals(name))) {
+        this.flush();
+      }
+      this.name = name;
+      this.lines[this.size] = line;
+      this.reading = true;
+      return this.motions;
+    }
+
+    /** Add the motion that was filled in after the last call to add. */
+    void commit() {
+      this.size++;
+      this.reading = false;
+    }
+
+    /** Pass the motions in the batch to the builder, unless one is still being filled in. */
+    void flushIfIdle() {
+      if (!this.reading) {
+        this.flush();
+      }
+    }
+
+    /** Pass the motions in the batch to the builder. */
+    void flush() {
+      int count = this.size;
+      // emptied first, so that a builder error does not pass the motions on again
+      this.size = 0;
+      if (count > 0) {
+        this.builder.setMotionLines(this.lines, 0);
+        this.builder.addMotions(this.name, this.motions, 0, count);
+      }
+    }
+  }
 }
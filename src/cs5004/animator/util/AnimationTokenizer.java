@@ -0,0 +1,275 @@
+package cs5004.animator.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Splits animation input into tokens in a single pass over a buffer. Tokens are separated by
+ * whitespace (space, tab, line feed, vertical tab, form feed and carriage return) and by comments,
+ * which run from a '#' to the end of the line. This is the same splitting that a Scanner with the
+ * delimiter {@code (\p{Space}+|#.*)+} does, without the regular expressions: integers are parsed
+ * straight from the buffer, and only names and keywords become Strings.
+ *
+ * <p>Integers are an optional sign followed by decimal digits, and must fit in an int. Unlike
+ * Scanner, locale-specific group separators such as "1,000" are not accepted.
+ *
+ * <p>Subclasses supply the buffer, as a sequence of code units that are chars or bytes. Every
+ * character that matters to the splitting is ASCII, so the same rules work for both.
+ */
+abstract class AnimationTokenizer {
+  private int intValue;
+  private int intLength;
+  private int line = 1;
+  private Runnable beforeWait;
+
+  /**
+   * Returns the code unit at an offset from the current position, reading more input if needed.
+   *
+   * @param offset the distance from the current position.
+   * @return the code unit, or -1 at the end of the input.
+   */
+  abstract int peek(int offset);
+
+  /**
+   * Returns the text of the next code units as a String. They must have been peeked at first.
+   *
+   * @param length the number of code units.
+   * @return the decoded text.
+   */
+  abstract String text(int length);
+
+  /**
+   * Move the current position forward.
+   *
+   * @param length the number of code units to move past.
+   */
+  abstract void skip(int length);
+
+  /**
+   * Returns the length of the line terminator at an offset from the current position. Like
+   * Scanner, this recognizes "\r\n", '\n', '\r', NEL and the Unicode line and paragraph separators.
+   *
+   * @param offset the distance from the current position.
+   * @return the number of code units in the terminator, or 0 if there is none.
+   */
+  int lineTerminatorLength(int offset) {
+    int c = this.peek(offset);
+    if (c == '\r') {
+      return this.peek(offset + 1) == '\n' ? 2 : 1;
+    }
+    return c == '\n' || c == '\u0085' || c == '\u2028' || c == '\u2029' ? 1 : 0;
+  }
+
+  /**
+   * Returns the line of the current position, counting from 1. Lines end at '\n', and at '\r'
+   * when it is not followed by '\n'.
+   *
+   * @return the line number.
+   */
+  int line() {
+    return this.line;
+  }
+
+  /**
+   * Set the line number of the current position, for input that does not start at the first line.
+   *
+   * @param line the line number.
+   */
+  void startAtLine(int line) {
+    this.line = line;
+  }
+
+  /**
+   * Set an action to run when the tokenizer is about to wait for more input to arrive, as from a
+   * pipe. Input that is already available, such as a file, is read without running it.
+   *
+   * @param action the action, or null for none.
+   */
+  void setBeforeWait(Runnable action) {
+    this.beforeWait = action;
+  }
+
+  /** Run the action set by setBeforeWait. Subclasses call this before a read that may block. */
+  void beforeWait() {
+    if (this.beforeWait != null) {
+      this.beforeWait.run();
+    }
+  }
+
+  /**
+   * Determine if there is another token.
+   *
+   * @return true if another token is available, false at the end of the input.
+   */
+  boolean hasNext() {
+    this.skipDelimiters();
+    return this.peek(0) >= 0;
+  }
+
+  /**
+   * Returns the next token.
+   *
+   * @return the next token.
+   * @throws NoSuchElementException if there are no more tokens.
+   */
+  String next() throws NoSuchElementException {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException();
+    }
+    int length = this.tokenLength();
+    String token = this.text(length);
+    this.skip(length);
+    return token;
+  }
+
+  /**
+   * Determine if the next token is an integer.
+   *
+   * @return true if the next token can be read with nextInt, false otherwise.
+   */
+  boolean hasNextInt() {
+    if (!this.hasNext()) {
+      return false;
+    }
+    // the token is measured while it is parsed, so its characters are only looked at once
+    int c = this.peek(0);
+    boolean negative = c == '-';
+    int first = c == '-' || c == '+' ? 1 : 0;
+    int length = first;
+    long value = 0;
+    for (c = this.peek(length); c >= 0 && !isSpace(c) && c != '#'; c = this.peek(++length)) {
+      if (c >= 0x80) {
+        // digits outside ASCII may take several code units, so decode the token
+        return this.parseText(this.tokenLength());
+      }
+      if (c < '0' || c > '9') {
+        return false;
+      }
+      value = value * 10 + (c - '0');
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        return false;
+      }
+    }
+    if (length == first) {
+      return false;
+    }
+    return this.setInt(negative ? -value : value, length);
+  }
+
+  /**
+   * Returns the next token as an integer. Must only be called after hasNextInt returned true.
+   *
+   * @return the value of the next token.
+   */
+  int nextInt() {
+    this.skip(this.intLength);
+    return this.intValue;
+  }
+
+  /**
+   * Returns the rest of the current line, without the line terminator, and moves to the start of
+   * the next line.
+   *
+   * @return the rest of the line.
+   * @throws NoSuchElementException if the input has already ended.
+   */
+  String nextLine() throws NoSuchElementException {
+    if (this.peek(0) < 0) {
+      throw new NoSuchElementException("No line found");
+    }
+    int length = 0;
+    while (this.peek(length) >= 0 && this.lineTerminatorLength(length) == 0) {
+      length++;
+    }
+    String line = this.text(length);
+    this.skip(length + this.lineTerminatorLength(length));
+    return line;
+  }
+
+  /**
+   * Parse the next token from its decoded text.
+   *
+   * @param length the number of code units in the token.
+   * @return true if the token is an integer, false otherwise.
+   */
+  private boolean parseText(int length) {
+    String token = this.text(length);
+    boolean negative = token.charAt(0) == '-';
+    int i = negative || token.charAt(0) == '+' ? 1 : 0;
+    if (i == token.length()) {
+      return false;
+    }
+    long value = 0;
+    for (; i < token.length(); i++) {
+      int digit = Character.digit(token.charAt(i), 10);
+      if (digit < 0) {
+        return false;
+      }
+      value = value * 10 + digit;
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        return false;
+      }
+    }
+    return this.setInt(negative ? -value : value, length);
+  }
+
+  /**
+   * Remember a parsed integer for nextInt, if it fits in an int.
+   *
+   * @param value the parsed value.
+   * @param length the number of code units in the token.
+   * @return true if the value fits in an int, false otherwise.
+   */
+  private boolean setInt(long value, int length) {
+    if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+      return false;
+    }
+    this.intValue = (int) value;
+    this.intLength = length;
+    return true;
+  }
+
+  /** Move past whitespace and comments. */
+  private void skipDelimiters() {
+    int c = this.peek(0);
+    while (c >= 0) {
+      if (isSpace(c)) {
+        if (c == '\n' || (c == '\r' && this.peek(1) != '\n')) {
+          this.line++;
+        }
+        this.skip(1);
+      } else if (c == '#') {
+        // the line terminator is not part of the comment
+        do {
+          this.skip(1);
+        } while (this.peek(0) >= 0 && this.lineTerminatorLength(0) == 0);
+      } else {
+        return;
+      }
+      c = this.peek(0);
+    }
+  }
+
+  /**
+   * Returns the length of the token at the current position, making sure all of it is buffered.
+   *
+   * @return the number of code units in the token.
+   */
+  private int tokenLength() {
+    int length = 0;
+    int c = this.peek(0);
+    while (c >= 0 && !isSpace(c) && c != '#') {
+      c = this.peek(++length);
+    }
+    return length;
+  }
+
+  /**
+   * Determine if a code unit is whitespace, as matched by \p{Space}.
+   *
+   * @param c the code unit.
+   * @return true for a whitespace character.
+   */
+  private static boolean isSpace(int c) {
+    return c == ' ' || (c >= '\t' && c <= '\r');
+  }
+}
@@ -0,0 +1,93 @@
+package cs5004.animator.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizer over bytes, which are copied from the input into a growable array in bulk and tokenized
+ * there. Bytes are never decoded, except for the names that become Strings, which are read as
+ * UTF-8. Subclasses supply the bytes.
+ */
+abstract class ByteTokenizer extends AnimationTokenizer {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private byte[] buf = new byte[BUFFER_SIZE];
+  private int pos;
+  private int limit;
+
+  /**
+   * Read more bytes of the input.
+   *
+   * @param b the array to read into.
+   * @param off the index of the first byte to write.
+   * @param len the largest number of bytes to read, at least 1.
+   * @return the number of bytes read, or -1 at the end of the input.
+   */
+  abstract int read(byte[] b, int off, int len);
+
+  @Override
+  int peek(int offset) {
+    while (this.pos + offset >= this.limit) {
+      if (!this.fill()) {
+        return -1;
+      }
+    }
+    return this.buf[this.pos + offset] & 0xFF;
+  }
+
+  @Override
+  String text(int length) {
+    for (int i = this.pos; i < this.pos + length; i++) {
+      if (this.buf[i] < 0) {
+        return new String(this.buf, this.pos, length, StandardCharsets.UTF_8);
+      }
+    }
+    // ASCII, which needs no decoding
+    return new String(this.buf, this.pos, length, StandardCharsets.ISO_8859_1);
+  }
+
+  @Override
+  void skip(int length) {
+    this.pos += length;
+  }
+
+  @Override
+  int lineTerminatorLength(int offset) {
+    int c = this.peek(offset);
+    if (c == '\r') {
+      return this.peek(offset + 1) == '\n' ? 2 : 1;
+    } else if (c == '\n') {
+      return 1;
+    } else if (c == 0xC2) {
+      // NEL
+      return this.peek(offset + 1) == 0x85 ? 2 : 0;
+    } else if (c == 0xE2 && this.peek(offset + 1) == 0x80) {
+      // line and paragraph separators
+      int d = this.peek(offset + 2);
+      return d == 0xA8 || d == 0xA9 ? 3 : 0;
+    }
+    return 0;
+  }
+
+  /**
+   * Read more bytes, moving the unread bytes to the front of the buffer first.
+   *
+   * @return false at the end of the input, true otherwise.
+   */
+  private boolean fill() {
+    if (this.pos > 0) {
+      System.arraycopy(this.buf, this.pos, this.buf, 0, this.limit - this.pos);
+      this.limit -= this.pos;
+      this.pos = 0;
+    } else if (this.limit == this.buf.length) {
+      byte[] bigger = new byte[this.buf.length * 2];
+      System.arraycopy(this.buf, 0, bigger, 0, this.limit);
+      this.buf = bigger;
+    }
+    int n = this.read(this.buf, this.limit, this.buf.length - this.limit);
+    if (n < 0) {
+      return false;
+    }
+    this.limit += n;
+    return true;
+  }
+}
@@ -0,0 +1,186 @@
+package cs5004.animator.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a memory-mapped animation file in parallel. The file is cut into chunks of about
+ * CHUNK_SIZE bytes, each starting at a line that begins with a keyword, and the chunks are
+ * tokenized on the common ForkJoinPool into RecordBuffers. The calling thread replays the buffers
+ * into the builder strictly in file order, so the builder sees exactly the calls a sequential
+ * read would make, and conflicts between motions of a shape are detected in the same order.
+ *
+ * <p>A cut is only known to be correct once the chunk before it has been read without error, since
+ * a motion may span several lines. When a chunk fails, every chunk before it has been replayed and
+ * ended on a complete line, so the rest of the file is simply read sequentially from the start of
+ * that chunk; this also reports the error exactly as a sequential read would.
+ */
+final class ChunkedFileReader {
+  /** Approximate number of bytes in one chunk. */
+  static final int CHUNK_SIZE = 8 << 20;
+
+  private static final int SCAN_SIZE = 1 << 16;
+  private static final String[] KEYWORDS = {"canvas", "shape", "motion"};
+
+  private final FileChannel channel;
+  private final long size;
+  private final int chunkSize;
+  private final int maxInFlight;
+
+  /**
+   * Create a reader for an open file.
+   *
+   * @param channel the file, opened for reading.
+   * @param chunkSize the approximate number of bytes in one chunk.
+   * @throws IOException if the size of the file cannot be read.
+   */
+  ChunkedFileReader(FileChannel channel, int chunkSize) throws IOException {
+    this.channel = channel;
+    this.size = channel.size();
+    this.chunkSize = chunkSize;
+    this.maxInFlight = 2 * (ForkJoinPool.getCommonPoolParallelism() + 1);
+  }
+
+  /**
+   * Read the file into a builder and build the animation.
+   *
+   * @param builder A builder for helping to construct a new animation
+   * @param <Doc> The main cs5004.animator.controller.model interface type describing animations
+   * @return the animation built by the builder
+   * @throws IOException if the file cannot be mapped, or the builder throws it
+   */
+  <Doc> Doc read(AnimationBuilder<Doc> builder) throws IOException {
+    ArrayDeque<Long> starts = new ArrayDeque<>();
+    ArrayDeque<Future<RecordBuffer>> pending = new ArrayDeque<>();
+    long next = 0;
+    int line = 1;
+    try {
+      while (true) {
+        while (pending.size() < this.maxInFlight && next < this.size) {
+          long start = next;
+          next = this.findRecordStart(start + this.chunkSize);
+          long end = next;
+          starts.add(start);
+          pending.add(ForkJoinPool.commonPool().submit(() -> this.readChunk(start, end)));
+        }
+        if (pending.isEmpty()) {
+          return builder.build();
+        }
+        long start = starts.remove();
+        RecordBuffer records;
+        try {
+          records = pending.remove().get();
+        } catch (ExecutionException e) {
+          MappedFileTokenizer rest =
+              new MappedFileTokenizer(
+                  this.channel, MappedFileTokenizer.WINDOW_SIZE, start, this.size);
+          rest.startAtLine(line);
+          return AnimationReader.parse(rest, builder);
+        }
+        records.replay(builder, line);
+        line += records.lineCount();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading the animation.");
+    } finally {
+      pending.forEach(f -> f.cancel(true));
+    }
+  }
+
+  /**
+   * Tokenize one chunk of the file.
+   *
+   * @param start the offset of the first byte of the chunk.
+   * @param end the offset after the last byte of the chunk.
+   * @return the lines of the chunk.
+   */
+  private RecordBuffer readChunk(long start, long end) {
+    RecordBuffer records = new RecordBuffer();
+    MappedFileTokenizer chunk =
+        new MappedFileTokenizer(this.channel, MappedFileTokenizer.WINDOW_SIZE, start, end);
+    AnimationReader.readRecords(chunk, records);
+    records.setLineCount(chunk.line() - 1);
+    return records;
+  }
+
+  /**
+   * Find the first line at or after an offset that starts with a keyword, ignoring leading
+   * whitespace. Such a line is likely, though not certain, to start a new record.
+   *
+   * @param from the offset to search from.
+   * @return the offset of the keyword, or the size of the file if there is none.
+   * @throws IOException if the file cannot be mapped.
+   */
+  private long findRecordStart(long from) throws IOException {
+    long pos = from;
+    while (pos < this.size) {
+      int length = (int) Math.min(this.size - pos, SCAN_SIZE);
+      boolean atEnd = pos + length == this.size;
+      MappedByteBuffer scan = this.channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+      // line starts too close to the end of the buffer are skipped; missing one only makes a
+      // chunk longer
+      int limit = atEnd ? length : length - 64;
+      for (int i = 0; i < limit; i++) {
+        if (scan.get(i) != '\n') {
+          continue;
+        }
+        int j = i + 1;
+        while (j < length && isSpace(scan.get(j))) {
+          j++;
+        }
+        if (startsWithKeyword(scan, j, length, atEnd)) {
+          return pos + j;
+        }
+      }
+      pos += limit;
+    }
+    return this.size;
+  }
+
+  /**
+   * Determine if a keyword followed by a delimiter starts at an index of a buffer.
+   *
+   * @param scan the bytes being searched.
+   * @param i the index to check.
+   * @param length the number of bytes in the buffer.
+   * @param atEnd true if the buffer ends at the end of the file.
+   * @return true if a keyword starts there.
+   */
+  private static boolean startsWithKeyword(
+      MappedByteBuffer scan, int i, int length, boolean atEnd) {
+    for (String keyword : KEYWORDS) {
+      int end = i + keyword.length();
+      if (end > length) {
+        continue;
+      }
+      boolean match = true;
+      for (int k = 0; k < keyword.length() && match; k++) {
+        match = scan.get(i + k) == keyword.charAt(k);
+      }
+      if (match && end == length) {
+        return atEnd;
+      } else if (match && (isSpace(scan.get(end)) || scan.get(end) == '#')) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Determine if a byte is whitespace, as matched by \p{Space}.
+   *
+   * @param b the byte.
+   * @return true for a whitespace character.
+   */
+  private static boolean isSpace(byte b) {
+    return b == ' ' || (b >= '\t' && b <= '\r');
+  }
+}
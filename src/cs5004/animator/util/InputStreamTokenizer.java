@@ -0,0 +1,49 @@
+package cs5004.animator.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Tokenizer over the bytes of an input stream, such as standard input or a decompressing stream.
+ * The stream is read block by block as the tokens are needed, so input of any length can be read
+ * without holding all of it.
+ */
+final class InputStreamTokenizer extends ByteTokenizer {
+  private final InputStream in;
+
+  /**
+   * Create a tokenizer reading from a stream.
+   *
+   * @param in the stream of animation text.
+   */
+  InputStreamTokenizer(InputStream in) {
+    this.in = in;
+  }
+
+  /**
+   * Read bytes from the stream, waiting until some are available.
+   *
+   * @param b the array to read into.
+   * @param off the index of the first byte to write.
+   * @param len the largest number of bytes to read, at least 1.
+   * @return the number of bytes read, or -1 at the end of the stream.
+   * @throws UncheckedIOException if the stream cannot be read.
+   */
+  @Override
+  int read(byte[] b, int off, int len) throws UncheckedIOException {
+    try {
+      if (this.in.available() == 0) {
+        this.beforeWait();
+      }
+      int n;
+      do {
+        n = this.in.read(b, off, len);
+      } while (n == 0);
+      return n;
+    } catch (IOException e) {
+      // unlike a Readable, a stream that fails is reported, since a damaged gzip file fails here
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package cs5004.animator.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Tokenizer over the bytes of a memory-mapped file. The file is mapped in consecutive windows of
+ * at most WINDOW_SIZE bytes, so files larger than the 2 GB limit of a single mapping can be read.
+ */
+final class MappedFileTokenizer extends ByteTokenizer {
+  /** Largest number of bytes mapped at once. */
+  static final int WINDOW_SIZE = 1 << 28;
+
+  private final FileChannel channel;
+  private final long end;
+  private final int windowSize;
+  private MappedByteBuffer window;
+  private long windowEnd;
+
+  /**
+   * Create a tokenizer over an open file.
+   *
+   * @param channel the file, opened for reading.
+   * @param windowSize the largest number of bytes to map at once.
+   * @throws IOException if the size of the file cannot be read.
+   */
+  MappedFileTokenizer(FileChannel channel, int windowSize) throws IOException {
+    this(channel, windowSize, 0, channel.size());
+  }
+
+  /**
+   * Create a tokenizer over a range of bytes of an open file.
+   *
+   * @param channel the file, opened for reading.
+   * @param windowSize the largest number of bytes to map at once.
+   * @param start the offset of the first byte to read.
+   * @param end the offset after the last byte to read.
+   */
+  MappedFileTokenizer(FileChannel channel, int windowSize, long start, long end) {
+    this.channel = channel;
+    this.end = end;
+    this.windowSize = windowSize;
+    this.windowEnd = start;
+  }
+
+  /**
+   * Copy bytes from the mapping, mapping the next window when the current one is used up.
+   *
+   * @param b the array to read into.
+   * @param off the index of the first byte to write.
+   * @param len the largest number of bytes to read, at least 1.
+   * @return the number of bytes read, or -1 at the end of the range.
+   */
+  @Override
+  int read(byte[] b, int off, int len) {
+    if (this.window == null || !this.window.hasRemaining()) {
+      if (this.windowEnd >= this.end) {
+        return -1;
+      }
+      long length = Math.min(this.end - this.windowEnd, this.windowSize);
+      try {
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.windowEnd, length);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not map input at byte " + this.windowEnd, e);
+      }
+      this.windowEnd += length;
+    }
+    int n = Math.min(this.window.remaining(), len);
+    this.window.get(b, off, n);
+    return n;
+  }
+}
@@ -0,0 +1,293 @@
+package cs5004.animator.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Writer that formats numbers itself, for writing large outputs such as SVG files. The numbers
+ * come out exactly as String.format would write them with "%d" and "%.Nf", but without parsing a
+ * format string or creating a String for every number. The text is collected in a buffer and
+ * written to the underlying writer in large blocks.
+ *
+ * <p>Like "%.Nf", a fixed-point number is rounded half up from the shortest decimal form of its
+ * value, which is not always the same as rounding the exact binary value. The two only differ when
+ * the value is within a few units in the last place of a tie, and those rare values are formatted
+ * by String.format. So is everything when the default locale does not write digits and the
+ * decimal point as ASCII.
+ */
+public final class OutputEncoder extends Writer {
+  private static final int FLUSH_SIZE = 1 << 13;
+  private static final long[] POWERS_OF_TEN = {
+    1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000
+  };
+  private static final long FAST_LIMIT = 1L << 52;
+
+  private static volatile LocaleCheck localeCheck = new LocaleCheck(null, false);
+
+  private final Writer out;
+  private final StringBuilder buffer = new StringBuilder(FLUSH_SIZE * 2);
+  private char[] chars = new char[FLUSH_SIZE * 2];
+
+  /**
+   * Create an encoder that writes to another writer. The encoder must be flushed or closed for the
+   * last of the text to reach the writer.
+   *
+   * @param out the writer to write to.
+   */
+  public OutputEncoder(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Append a string.
+   *
+   * @param s the string.
+   * @return this encoder.
+   * @throws IOException if the underlying writer fails.
+   */
+  public OutputEncoder append(String s) throws IOException {
+    this.buffer.append(s);
+    return this.drainIfFull();
+  }
+
+  @Override
+  public OutputEncoder append(char c) throws IOException {
+    this.buffer.append(c);
+    return this.drainIfFull();
+  }
+
+  @Override
+  public OutputEncoder append(CharSequence csq) throws IOException {
+    this.buffer.append(csq);
+    return this.drainIfFull();
+  }
+
+  @Override
+  public OutputEncoder append(CharSequence csq, int start, int end) throws IOException {
+    this.buffer.append(csq, start, end);
+    return this.drainIfFull();
+  }
+
+  /**
+   * Append an integer, as "%d" formats it.
+   *
+   * @param value the integer.
+   * @return this encoder.
+   * @throws IOException if the underlying writer fails.
+   */
+  public OutputEncoder appendInt(long value) throws IOException {
+    appendInt(this.buffer, value);
+    return this.drainIfFull();
+  }
+
+  /**
+   * Append a number with a fixed number of decimals, as "%.Nf" formats it.
+   *
+   * @param value the number.
+   * @param decimals the number of decimals, from 0 to 9.
+   * @return this encoder.
+   * @throws IOException if the underlying writer fails.
+   */
+  public OutputEncoder appendFixed(double value, int decimals) throws IOException {
+    appendFixed(this.buffer, value, decimals);
+    return this.drainIfFull();
+  }
+
+  /**
+   * Append a number rounded to at most a number of decimals, as "%.Nf" formats it but without
+   * trailing zeros or a trailing decimal point.
+   *
+   * @param value the number.
+   * @param decimals the largest number of decimals, from 0 to 9.
+   * @return this encoder.
+   * @throws IOException if the underlying writer fails.
+   */
+  public OutputEncoder appendDecimal(double value, int decimals) throws IOException {
+    appendDecimal(this.buffer, value, decimals);
+    return this.drainIfFull();
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    if (len >= FLUSH_SIZE) {
+      // large blocks are not copied into the buffer
+      this.drain();
+      this.out.write(cbuf, off, len);
+      return;
+    }
+    this.buffer.append(cbuf, off, len);
+    this.drainIfFull();
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    this.buffer.append(str, off, off + len);
+    this.drainIfFull();
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    this.append((char) c);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    this.drain();
+    this.out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.drain();
+    this.out.close();
+  }
+
+  /**
+   * Append an integer to a StringBuilder, as "%d" formats it.
+   *
+   * @param sb the StringBuilder.
+   * @param value the integer.
+   * @return the StringBuilder.
+   */
+  public static StringBuilder appendInt(StringBuilder sb, long value) {
+    if (isPlainLocale()) {
+      return sb.append(value);
+    }
+    return sb.append(String.format("%d", value));
+  }
+
+  /**
+   * Append a number with a fixed number of decimals to a StringBuilder, as "%.Nf" formats it.
+   *
+   * @param sb the StringBuilder.
+   * @param value the number.
+   * @param decimals the number of decimals, from 0 to 9.
+   * @return the StringBuilder.
+   * @throws IllegalArgumentException if the number of decimals is out of range.
+   */
+  public static StringBuilder appendFixed(StringBuilder sb, double value, int decimals)
+      throws IllegalArgumentException {
+    if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+      throw new IllegalArgumentException("Decimals must be between 0 and 9.");
+    }
+    long scale = POWERS_OF_TEN[decimals];
+    double scaled = Math.abs(value) * scale;
+    if (!(scaled < FAST_LIMIT) || !isPlainLocale()) {
+      // also NaN, which fails every comparison
+      return sb.append(String.format("%." + decimals + "f", value));
+    }
+    long whole = (long) scaled;
+    double fraction = scaled - whole;
+    // the shortest decimal form of the value is within a unit in the last place of it
+    if (Math.abs(fraction - 0.5) <= 8 * Math.ulp(scaled)) {
+      return sb.append(String.format("%." + decimals + "f", value));
+    }
+    long rounded = fraction > 0.5 ? whole + 1 : whole;
+    // negative values, and negative zero, keep their sign even when they round to zero
+    if (value < 0 || (value == 0 && 1 / value < 0)) {
+      sb.append('-');
+    }
+    sb.append(rounded / scale);
+    if (decimals > 0) {
+      sb.append('.');
+      long digits = rounded % scale;
+      for (long p = scale / 10; p > 0; p /= 10) {
+        sb.append((char) ('0' + digits / p % 10));
+      }
+    }
+    return sb;
+  }
+
+  /**
+   * Append a number rounded to at most a number of decimals to a StringBuilder, as "%.Nf" formats
+   * it but without trailing zeros or a trailing decimal point.
+   *
+   * @param sb the StringBuilder.
+   * @param value the number.
+   * @param decimals the largest number of decimals, from 0 to 9.
+   * @return the StringBuilder.
+   * @throws IllegalArgumentException if the number of decimals is out of range.
+   */
+  public static StringBuilder appendDecimal(StringBuilder sb, double value, int decimals)
+      throws IllegalArgumentException {
+    int start = sb.length();
+    appendFixed(sb, value, decimals);
+    int end = sb.length();
+    if (sb.indexOf(".", start) >= 0) {
+      while (sb.charAt(end - 1) == '0') {
+        end--;
+      }
+      if (sb.charAt(end - 1) == '.') {
+        end--;
+      }
+      sb.setLength(end);
+    }
+    return sb;
+  }
+
+  /**
+   * Write the buffer to the underlying writer once it holds enough text.
+   *
+   * @return this encoder.
+   * @throws IOException if the underlying writer fails.
+   */
+  private OutputEncoder drainIfFull() throws IOException {
+    if (this.buffer.length() >= FLUSH_SIZE) {
+      this.drain();
+    }
+    return this;
+  }
+
+  /**
+   * Write the buffer to the underlying writer.
+   *
+   * @throws IOException if the underlying writer fails.
+   */
+  private void drain() throws IOException {
+    int length = this.buffer.length();
+    if (length > this.chars.length) {
+      this.chars = new char[length];
+    }
+    this.buffer.getChars(0, length, this.chars, 0);
+    this.out.write(this.chars, 0, length);
+    this.buffer.setLength(0);
+  }
+
+  /**
+   * Determine if the default locale formats numbers with ASCII digits and a '.' decimal point, as
+   * the fast paths do. The answer is remembered until the default locale changes.
+   *
+   * @return true if numbers can be formatted without String.format.
+   */
+  private static boolean isPlainLocale() {
+    Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+    LocaleCheck check = localeCheck;
+    if (check.locale != locale) {
+      DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+      check =
+          new LocaleCheck(
+              locale, symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.');
+      localeCheck = check;
+    }
+    return check.plain;
+  }
+
+  /** Whether a locale formats numbers the plain way. */
+  private static final class LocaleCheck {
+    private final Locale locale;
+    private final boolean plain;
+
+    /**
+     * Create the result of a check.
+     *
+     * @param locale the locale that was checked.
+     * @param plain true if the locale formats numbers the plain way.
+     */
+    private LocaleCheck(Locale locale, boolean plain) {
+      this.locale = locale;
+      this.plain = plain;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package cs5004.animator.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/** Tokenizer over the characters of a Readable, read into a growable buffer. */
+final class ReadableTokenizer extends AnimationTokenizer {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Readable source;
+  private char[] buf = new char[BUFFER_SIZE];
+  private int pos;
+  private int limit;
+  private boolean eof;
+
+  /**
+   * Create a tokenizer reading from the given source.
+   *
+   * @param source the source of the animation text.
+   */
+  ReadableTokenizer(Readable source) {
+    this.source = source;
+  }
+
+  @Override
+  int peek(int offset) {
+    while (this.pos + offset >= this.limit) {
+      if (this.eof) {
+        return -1;
+      }
+      this.fill();
+    }
+    return this.buf[this.pos + offset];
+  }
+
+  @Override
+  String text(int length) {
+    return new String(this.buf, this.pos, length);
+  }
+
+  @Override
+  void skip(int length) {
+    this.pos += length;
+  }
+
+  /** Read more input, moving the unread characters to the front of the buffer first. */
+  private void fill() {
+    if (this.pos > 0) {
+      System.arraycopy(this.buf, this.pos, this.buf, 0, this.limit - this.pos);
+      this.limit -= this.pos;
+      this.pos = 0;
+    } else if (this.limit == this.buf.length) {
+      char[] bigger = new char[this.buf.length * 2];
+      System.arraycopy(this.buf, 0, bigger, 0, this.limit);
+      this.buf = bigger;
+    }
+    try {
+      if (this.source instanceof Reader && !((Reader) this.source).ready()) {
+        this.beforeWait();
+      }
+      int n;
+      do {
+        n = this.source.read(CharBuffer.wrap(this.buf, this.limit, this.buf.length - this.limit));
+      } while (n == 0);
+      if (n < 0) {
+        this.eof = true;
+      } else {
+        this.limit += n;
+      }
+    } catch (IOException e) {
+      // like Scanner, a source that fails is treated as ending there
+      this.eof = true;
+    }
+  }
+}
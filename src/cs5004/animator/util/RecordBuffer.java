@@ -0,0 +1,180 @@
+package cs5004.animator.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * AnimationBuilder that only records the lines it is given, as primitive ints and a list of
+ * names, so that they can be replayed into another builder later in the same order. Used to parse
+ * parts of a file on worker threads while the real builder stays on one thread. Consecutive
+ * motions of one shape are recorded as one run, and replayed with a single call to addMotions.
+ *
+ * <p>The line numbers of the motions are recorded as counted from the start of the part of the
+ * file, and moved to the line numbers of the whole file when they are replayed.
+ */
+final class RecordBuffer implements AnimationBuilder<Void> {
+  private static final int CANVAS = 0;
+  private static final int SHAPE = 1;
+  private static final int MOTIONS = 2;
+
+  private int[] ints = new int[1024];
+  private int size;
+  private final ArrayList<String> names = new ArrayList<>();
+  private int lastMotions = -1;
+  private int[] motionLines = new int[64];
+  private int motionCount;
+  private int[] nextLines;
+  private int nextLinesOffset;
+  private int lineCount;
+
+  @Override
+  public Void build() {
+    return null;
+  }
+
+  @Override
+  public AnimationBuilder<Void> setBounds(int x, int y, int width, int height) {
+    this.reserve(5);
+    this.lastMotions = -1;
+    this.ints[this.size++] = CANVAS;
+    this.ints[this.size++] = x;
+    this.ints[this.size++] = y;
+    this.ints[this.size++] = width;
+    this.ints[this.size++] = height;
+    return this;
+  }
+
+  @Override
+  public AnimationBuilder<Void> declareShape(String name, String type) {
+    this.reserve(1);
+    this.lastMotions = -1;
+    this.ints[this.size++] = SHAPE;
+    this.names.add(name);
+    this.names.add(type);
+    return this;
+  }
+
+  @Override
+  public AnimationBuilder<Void> addMotion(
+      String name,
+      int t1,
+      int x1,
+      int y1,
+      int w1,
+      int h1,
+      int r1,
+      int g1,
+      int b1,
+      int t2,
+      int x2,
+      int y2,
+      int w2,
+      int h2,
+      int r2,
+      int g2,
+      int b2) {
+    int[] motion = {t1, x1, y1, w1, h1, r1, g1, b1, t2, x2, y2, w2, h2, r2, g2, b2};
+    return this.addMotions(name, motion, 0, 1);
+  }
+
+  @Override
+  public AnimationBuilder<Void> setMotionLines(int[] lines, int offset) {
+    this.nextLines = lines;
+    this.nextLinesOffset = offset;
+    return this;
+  }
+
+  @Override
+  public AnimationBuilder<Void> addMotions(String name, int[] motions, int offset, int count) {
+    int length = count * MOTION_SIZE;
+    if (this.lastMotions < 0 || !this.names.get(this.names.size() - 1).equals(name)) {
+      // start a new run of motions
+      this.reserve(2);
+      this.lastMotions = this.size;
+      this.ints[this.size++] = MOTIONS;
+      this.ints[this.size++] = 0;
+      this.names.add(name);
+    }
+    this.reserve(length);
+    System.arraycopy(motions, offset, this.ints, this.size, length);
+    this.size += length;
+    this.ints[this.lastMotions + 1] += count;
+    if (this.motionCount + count > this.motionLines.length) {
+      this.motionLines =
+          Arrays.copyOf(
+              this.motionLines, Math.max(this.motionCount + count, this.motionLines.length * 2));
+    }
+    if (this.nextLines != null) {
+      System.arraycopy(
+          this.nextLines, this.nextLinesOffset, this.motionLines, this.motionCount, count);
+      this.nextLines = null;
+    }
+    this.motionCount += count;
+    return this;
+  }
+
+  /**
+   * Returns the number of lines in the part of the file that was recorded.
+   *
+   * @return the number of lines.
+   */
+  int lineCount() {
+    return this.lineCount;
+  }
+
+  /**
+   * Set the number of lines in the part of the file that was recorded.
+   *
+   * @param lineCount the number of lines.
+   */
+  void setLineCount(int lineCount) {
+    this.lineCount = lineCount;
+  }
+
+  /**
+   * Pass every recorded line to another builder, in the order they were recorded. The line numbers
+   * of the motions are moved in place, so a buffer can only be replayed once.
+   *
+   * @param builder the builder to replay into.
+   * @param firstLine the line of the whole file on which the recorded part starts.
+   * @param <Doc> the type of document the builder builds.
+   */
+  <Doc> void replay(AnimationBuilder<Doc> builder, int firstLine) {
+    for (int i = 0; i < this.motionCount; i++) {
+      this.motionLines[i] += firstLine - 1;
+    }
+    int[] a = this.ints;
+    int n = 0;
+    int m = 0;
+    for (int i = 0; i < this.size; ) {
+      switch (a[i]) {
+        case CANVAS:
+          builder.setBounds(a[i + 1], a[i + 2], a[i + 3], a[i + 4]);
+          i += 5;
+          break;
+        case SHAPE:
+          builder.declareShape(this.names.get(n), this.names.get(n + 1));
+          n += 2;
+          i += 1;
+          break;
+        default:
+          builder.setMotionLines(this.motionLines, m);
+          builder.addMotions(this.names.get(n++), a, i + 2, a[i + 1]);
+          m += a[i + 1];
+          i += 2 + a[i + 1] * MOTION_SIZE;
+          break;
+      }
+    }
+  }
+
+  /**
+   * Make room for more ints.
+   *
+   * @param count the number of ints about to be added.
+   */
+  private void reserve(int count) {
+    if (this.size + count > this.ints.length) {
+      this.ints = Arrays.copyOf(this.ints, Math.max(this.size + count, this.ints.length * 2));
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package cs5004.animator.view;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import javax.naming.OperationNotSupportedException;
+
+import cs5004.animator.model.canvas.CompiledAnimationFile;
+import cs5004.animator.model.canvas.ICanvas;
+
+/**
+ * View that saves the animation as a compiled animation, which can be given back as an input file
+ * and is loaded without parsing.
+ */
+public class CompiledView implements IView {
+
+  private final ICanvas canvas;
+
+  /**
+   * Constructor for a compiled view, which writes the output file right away.
+   *
+   * @param canvas the canvas object containing the shape and transformation data.
+   * @param outFile the filename of the output file.
+   * @throws IllegalArgumentException if there is no output file.
+   */
+  public CompiledView(ICanvas canvas, String outFile) throws IllegalArgumentException {
+    if (outFile == null) {
+      throw new IllegalArgumentException("A compiled animation needs an output file.");
+    }
+    this.canvas = canvas;
+    this.createFile(outFile);
+  }
+
+  @Override
+  public void createFile(String filename) {
+    try {
+      CompiledAnimationFile.write(this.canvas, Paths.get(filename));
+    } catch (IOException e) {
+      System.out.println("Error occurred.");
+      e.printStackTrace();
+    }
+  }
+
+  @Override
+  public void createAndShow(int delay) throws OperationNotSupportedException {
+    throw new OperationNotSupportedException("Operation not supported");
+  }
+
+  @Override
+  public String generateText(float delay) throws OperationNotSupportedException {
+    throw new OperationNotSupportedException("Operation not supported");
+  }
+}
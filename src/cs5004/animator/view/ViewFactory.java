@@ -12,4 +12,16 @@ public interface ViewFactory {
    * @return The view object.
    */
   IView create(String viewType, String outFile, float delay);
+
+  /**
+   * Create a view, compressing the SVG output at a given level when the output file ends with
+   * .svgz.
+   *
+   * @param viewType the type of view to create.
+   * @param outFile the filename where the output will go.
+   * @param delay the delay between frames of the animation.
+   * @param compressionLevel the gzip level, from 0 to 9, or -1 for the default level.
+   * @return The view object.
+   */
+  IView create(String viewType, String outFile, float delay, int compressionLevel);
 }
@@ -1,6 +1,9 @@
 package cs5004.animator.view;
 
 import cs5004.animator.model.canvas.ICanvas;
+import cs5004.animator.model.canvas.ProgressiveLoader;
+import cs5004.animator.view.text.AbstractTextualView;
+import cs5004.animator.view.text.CompactSVGView;
 import cs5004.animator.view.text.SVGView;
 import cs5004.animator.view.text.TextView;
 import cs5004.animator.view.visual.InteractiveView;
@@ -10,6 +13,7 @@ import cs5004.animator.view.visual.VisualView;
 public class ViewFactoryImpl implements ViewFactory {
 
   private final ICanvas canvas;
+  private final ProgressiveLoader loader;
 
   /**
    * Constructor for the ViewFactoryImpl.
@@ -18,20 +22,45 @@ public class ViewFactoryImpl implements ViewFactory {
    */
   public ViewFactoryImpl(ICanvas c) {
     this.canvas = c;
+    this.loader = null;
+  }
+
+  /**
+   * Constructor for a ViewFactoryImpl whose canvas is still being loaded. Visual views start
+   * playing right away; text and SVG views wait for the whole animation.
+   *
+   * @param loader the loader that is reading the animation.
+   */
+  public ViewFactoryImpl(ProgressiveLoader loader) {
+    this.canvas = null;
+    this.loader = loader;
   }
 
   @Override
   public IView create(String viewType, String outFile, float delay) {
+    return this.create(viewType, outFile, delay, AbstractTextualView.DEFAULT_COMPRESSION_LEVEL);
+  }
+
+  @Override
+  public IView create(String viewType, String outFile, float delay, int compressionLevel) {
     try {
       switch (viewType) {
         case "text":
-          return new TextView(this.canvas, outFile);
+          return new TextView(this.getCanvas(), outFile);
         case "svg":
-          return new SVGView(this.canvas, outFile, delay);
+          return new SVGView(this.getCanvas(), outFile, delay, compressionLevel);
+        case "compactsvg":
+          return new CompactSVGView(this.getCanvas(), outFile, delay, compressionLevel);
         case "visual":
-          return new VisualView(this.canvas, delay);
+          return this.loader == null
+              ? new VisualView(this.canvas, delay)
+              : new VisualView(this.loader, delay);
+        case "compiled":
+          return new CompiledView(this.getCanvas(), outFile);
         case "playback":
-          return new InteractiveView(this.canvas, delay);
+          return this.loader == null
+              ? new InteractiveView(this.canvas, delay)
+              : new InteractiveView(this.loader, delay);
         default:
           throw new IllegalArgumentException("Could not parse view argument");
       }
@@ -41,4 +70,13 @@ public class ViewFactoryImpl implements ViewFactory {
       return null;
     }
   }
+
+  /**
+   * Returns the complete canvas, waiting for it to be loaded if needed.
+   *
+   * @return the canvas with all the view information.
+   */
+  private ICanvas getCanvas() {
+    return this.loader == null ? this.canvas : this.loader.awaitCanvas();
+  }
 }
@@ -7,14 +7,20 @@ import java.awt.event.FocusListener;
 import javax.naming.OperationNotSupportedException;
 import javax.swing.JFrame;
 import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 
 import cs5004.animator.controller.Features;
 
 /** Window that allows a user to save an animation. */
 public class SaveControls extends JFrame implements Controls {
   private final JButton saveSVG = new JButton("Save as .SVG");
+  private final JButton saveSVGZ = new JButton("Save as .svgz");
   private final JButton saveTxt = new JButton("Save as .txt");
+  // gzip level of .svgz files, starting at the level gzip uses by default
+  private final JSpinner compressionLevel = new JSpinner(new SpinnerNumberModel(6, 0, 9, 1));
   private final JTextField filename = new JTextField("Enter filename");
   private String name;
 
@@ -24,6 +30,9 @@ public class SaveControls extends JFrame implements Controls {
     setLayout(new FlowLayout());
     add(filename);
     add(saveSVG);
+    add(saveSVGZ);
+    add(new JLabel("Level:"));
+    add(compressionLevel);
     add(saveTxt);
     pack();
     setDefaultCloseOperation(HIDE_ON_CLOSE);
@@ -35,6 +44,15 @@ public class SaveControls extends JFrame implements Controls {
     return name;
   }
 
+  /**
+   * Get the compression level chosen for .svgz files.
+   *
+   * @return the gzip level, from 0 (none) to 9 (smallest).
+   */
+  public int getCompressionLevel() {
+    return (Integer) compressionLevel.getValue();
+  }
+
   @Override
   public void addFeatures(Features features) {
     filename.addFocusListener(
@@ -50,6 +68,7 @@ public class SaveControls extends JFrame implements Controls {
           }
         });
     saveSVG.addActionListener(l -> features.saveAsSVG());
+    saveSVGZ.addActionListener(l -> features.saveAsSVGZ());
     saveTxt.addActionListener(l -> features.saveAsTxt());
   }
 
@@ -1,8 +1,13 @@
 package cs5004.animator.view.text;
 
 import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import javax.naming.OperationNotSupportedException;
 import javax.swing.JFrame;
@@ -12,14 +17,26 @@ import javax.swing.JTextArea;
 import cs5004.animator.model.canvas.ICanvas;
 import cs5004.animator.view.IView;
 
-/** Abstract class for a text-based view that defines common methods for these classes. */
+/**
+ * Abstract class for a text-based view that defines common methods for these classes. Output to a
+ * file or to the console is written as it is generated, so only the text window holds the whole
+ * text in memory. Files whose name ends with .svgz are compressed with gzip as they are written.
+ */
 public abstract class AbstractTextualView implements IView {
+  /** Extension of files that are written compressed with gzip. */
+  public static final String COMPRESSED_EXTENSION = ".svgz";
+
+  /** Compression level used when none is given, which is a balance of speed and size. */
+  public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+  private static final int BUFFER_SIZE = 1 << 16;
 
   protected ICanvas canvas;
   protected JFrame frame;
   protected JScrollPane scrollPane;
   protected String text;
   protected float delay;
+  private final int compressionLevel;
 
   /**
    * Super constructor for a TextView and SVGView.
@@ -28,12 +45,33 @@ public abstract class AbstractTextualView implements IView {
    * @param delay the delay (in ms) between each frame.
    */
   public AbstractTextualView(ICanvas canvas, String outFile, float delay) {
+    this(canvas, outFile, delay, DEFAULT_COMPRESSION_LEVEL);
+  }
+
+  /**
+   * Super constructor for a view whose files may be compressed.
+   *
+   * @param canvas the canvas object containing the shape and transformation data.
+   * @param outFile the name of the output file.
+   * @param delay the delay (in ms) between each frame.
+   * @param compressionLevel the gzip level of .svgz files, from 0 (none) to 9 (smallest), or
+   *     DEFAULT_COMPRESSION_LEVEL.
+   * @throws IllegalArgumentException if the compression level is out of range.
+   */
+  public AbstractTextualView(ICanvas canvas, String outFile, float delay, int compressionLevel)
+      throws IllegalArgumentException {
+    if ((compressionLevel < 0 || compressionLevel > 9)
+        && compressionLevel != DEFAULT_COMPRESSION_LEVEL) {
+      throw new IllegalArgumentException("Compression level must be between 0 and 9.");
+    }
     this.canvas = canvas;
     this.delay = delay;
-    this.text = this.generateText(delay);
+    // set before the file is written below
+    this.compressionLevel = compressionLevel;
 
     if (outFile != null) {
       if (outFile.equals("output/NoSave")) {
+        this.text = this.generateText(delay);
         this.frame = new JFrame("Easy Animator TextView");
         this.frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
@@ -49,26 +87,61 @@ public abstract class AbstractTextualView implements IView {
         this.createFile(outFile);
       }
     } else {
-      System.out.println(this.text);
+      try {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_SIZE);
+        this.writeText(writer);
+        writer.write(System.lineSeparator());
+        writer.flush();
+      } catch (IOException e) {
+        System.out.println("Error occurred.");
+        e.printStackTrace();
+      }
     }
   }
 
   @Override
   public void createFile(String filename) {
     // creates .txt file for TextView and .xml file for SVGView
-    try {
-      FileWriter newFile = new FileWriter(filename);
-
-      BufferedWriter writer = new BufferedWriter(newFile);
-      writer.write(this.text);
-
-      writer.close();
+    try (Writer writer = new BufferedWriter(this.openFile(filename), BUFFER_SIZE)) {
+      this.writeText(writer);
     } catch (IOException e) {
       System.out.println("Error occurred.");
       e.printStackTrace();
     }
   }
 
+  /**
+   * Open a file for writing text, compressing it with gzip if its name ends with .svgz. The text is
+   * compressed as it is written, so the uncompressed file is never held in memory or on disk.
+   *
+   * @param filename the name of the file.
+   * @return a writer to the file.
+   * @throws IOException if the file cannot be opened.
+   */
+  private Writer openFile(String filename) throws IOException {
+    OutputStream out = new FileOutputStream(filename);
+    if (filename.endsWith(COMPRESSED_EXTENSION)) {
+      try {
+        out = new LeveledGZIPOutputStream(out, BUFFER_SIZE, this.compressionLevel);
+      } catch (IOException e) {
+        out.close();
+        throw e;
+      }
+    }
+    return new OutputStreamWriter(out);
+  }
+
+  /**
+   * Writes the text of the view. By default the text is generated as a whole and then written;
+   * views that can generate it piece by piece override this.
+   *
+   * @param out the writer to write to.
+   * @throws IOException if the writer fails.
+   */
+  protected void writeText(Writer out) throws IOException {
+    out.write(this.generateText(this.delay));
+  }
+
   @Override
   public String generateText(float delay) {
     return this.canvas.toSVGString(this.delay);
@@ -78,4 +151,20 @@ public abstract class AbstractTextualView implements IView {
   public void createAndShow(int delay) throws OperationNotSupportedException {
     throw new OperationNotSupportedException("Operation not supported");
   }
+
+  /** GZIPOutputStream that compresses at a chosen level. */
+  private static final class LeveledGZIPOutputStream extends GZIPOutputStream {
+    /**
+     * Create a stream that compresses to another stream.
+     *
+     * @param out the stream to write the compressed data to.
+     * @param size the size of the output buffer.
+     * @param level the compression level, or DEFAULT_COMPRESSION_LEVEL.
+     * @throws IOException if the gzip header cannot be written.
+     */
+    private LeveledGZIPOutputStream(OutputStream out, int size, int level) throws IOException {
+      super(out, size);
+      this.def.setLevel(level);
+    }
+  }
 }
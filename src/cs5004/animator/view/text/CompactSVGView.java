@@ -0,0 +1,56 @@
+package cs5004.animator.view.text;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+import cs5004.animator.model.canvas.ICanvas;
+
+/**
+ * SVG view that animates every attribute of a shape with a single element, using lists of values
+ * and key times. The file is much smaller than the one of an SVGView, but looks the same.
+ */
+public class CompactSVGView extends SVGView {
+  /**
+   * Constructor for a CompactSVGView view.
+   *
+   * @param canvas the canvas object with data to be animated.
+   * @param outFile the name of the eventual .svg file.
+   * @param delay the delay (in ms) between each frame.
+   */
+  public CompactSVGView(ICanvas canvas, String outFile, float delay) {
+    super(canvas, outFile, delay);
+  }
+
+  /**
+   * Constructor for a CompactSVGView view that may write a compressed file.
+   *
+   * @param canvas the canvas object with data to be animated.
+   * @param outFile the name of the eventual file, compressed with gzip if it ends with .svgz.
+   * @param delay the delay (in ms) between each frame.
+   * @param compressionLevel the gzip level, from 0 to 9, or DEFAULT_COMPRESSION_LEVEL.
+   * @throws IllegalArgumentException if the compression level is out of range.
+   */
+  public CompactSVGView(ICanvas canvas, String outFile, float delay, int compressionLevel)
+      throws IllegalArgumentException {
+    super(canvas, outFile, delay, compressionLevel);
+  }
+
+  @Override
+  public String generateText(float delay) {
+    StringWriter out = new StringWriter();
+    try {
+      this.canvas.writeCompactSVG(this.delay, out);
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      throw new UncheckedIOException(e);
+    }
+    return out.toString();
+  }
+
+  @Override
+  protected void writeText(Writer out) throws IOException {
+    this.canvas.writeCompactSVG(this.delay, out);
+  }
+}
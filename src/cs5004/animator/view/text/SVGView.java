@@ -1,5 +1,8 @@
 package cs5004.animator.view.text;
 
+import java.io.IOException;
+import java.io.Writer;
+
 import cs5004.animator.model.canvas.ICanvas;
 
 /** Textual view that creates SVG formatted output. */
@@ -15,8 +18,27 @@ public class SVGView extends AbstractTextualView {
     super(canvas, outFile, delay);
   }
 
+  /**
+   * Constructor for an SVGView view that may write a compressed file.
+   *
+   * @param canvas the canvas object with data to be animated.
+   * @param outFile the name of the eventual file, compressed with gzip if it ends with .svgz.
+   * @param delay the delay (in ms) between each frame.
+   * @param compressionLevel the gzip level, from 0 to 9, or DEFAULT_COMPRESSION_LEVEL.
+   * @throws IllegalArgumentException if the compression level is out of range.
+   */
+  public SVGView(ICanvas canvas, String outFile, float delay, int compressionLevel)
+      throws IllegalArgumentException {
+    super(canvas, outFile, delay, compressionLevel);
+  }
+
   @Override
   public String generateText(float delay) {
     return this.canvas.toSVGString(this.delay);
   }
+
+  @Override
+  protected void writeText(Writer out) throws IOException {
+    this.canvas.writeSVG(this.delay, out);
+  }
 }
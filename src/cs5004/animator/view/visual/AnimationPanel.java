@@ -1,22 +1,33 @@
 package cs5004.animator.view.visual;
 
+import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.Timer;
 
+import cs5004.animator.model.canvas.FrameBuffer;
 import cs5004.animator.model.canvas.ICanvas;
+import cs5004.animator.model.canvas.PlaybackEvaluator;
+import cs5004.animator.model.canvas.ProgressiveLoader;
 import cs5004.animator.model.shape.Shape;
 
 /**
  * Paints Graphics2D objects onto a panel, and keeps track of frames per second. Used to render
- * shapes for the VisualView.
+ * shapes for the VisualView. A panel can also play an animation that is still being loaded: it
+ * switches to each new snapshot of the canvas as the loader publishes it, and holds the current
+ * frame while the next one has not been loaded. If the loader fails, the panel reports the error
+ * once and keeps playing what was loaded.
  */
 public class AnimationPanel extends JPanel implements ActionListener {
-  private final ICanvas canvas;
+  private final ProgressiveLoader loader;
+  private ICanvas canvas;
+  private PlaybackEvaluator playback;
+  private FrameBuffer buffer;
   private final Timer timer;
   private final int initialDelay;
   private int fps;
@@ -24,6 +35,7 @@ public class AnimationPanel extends JPanel implements ActionListener {
   private boolean repeat = false;
   private int finalFrame = 0;
   private boolean paused = false;
+  private boolean failureReported = false;
 
   /**
    * Constructor for the AnimationPanel.
@@ -32,11 +44,45 @@ public class AnimationPanel extends JPanel implements ActionListener {
    * @param delay the delay (in ms) between each frame.
    */
   public AnimationPanel(ICanvas c, int delay) {
-    this.canvas = c;
+    this(null, c, delay);
+  }
+
+  /**
+   * Constructor for an AnimationPanel that plays an animation while it is loaded.
+   *
+   * @param loader the loader that is reading the animation.
+   * @param delay the delay (in ms) between each frame.
+   */
+  public AnimationPanel(ProgressiveLoader loader, int delay) {
+    this(loader, loader.getCanvas(), delay);
+  }
+
+  /**
+   * Constructor for the AnimationPanel.
+   *
+   * @param loader the loader that is reading the animation, or null if it is already loaded.
+   * @param c the canvas that is being rendered.
+   * @param delay the delay (in ms) between each frame.
+   */
+  private AnimationPanel(ProgressiveLoader loader, ICanvas c, int delay) {
+    this.loader = loader;
     this.timer = new Timer(delay, this);
     this.initialDelay = delay;
     this.fps = 1000 / delay;
     this.frame = 0;
+    this.setCanvas(c);
+  }
+
+  /**
+   * Start rendering a canvas, keeping the current frame.
+   *
+   * @param c the canvas that is being rendered.
+   */
+  private void setCanvas(ICanvas c) {
+    this.canvas = c;
+    this.playback = c.createPlaybackEvaluator();
+    this.buffer = this.playback.getBuffer();
+    this.finalFrame = 0;
     for (Shape s : this.canvas.getInitialShapes()) {
       if (s.getEndFrame() > this.finalFrame) {
         this.finalFrame = (int) s.getEndFrame();
@@ -81,25 +127,51 @@ public class AnimationPanel extends JPanel implements ActionListener {
   public void paintComponent(Graphics g) {
     Graphics2D g2 = (Graphics2D) g;
     super.paintComponent(g2);
-    for (Shape s : this.canvas.getShapesAtFrame(this.frame)) {
-      if (s.isVisible()) {
-        g.setColor(s.getColor());
-        s.fill(g2);
+    if (this.loader != null && this.loader.getCanvas() != this.canvas) {
+      this.setCanvas(this.loader.getCanvas());
+    }
+    this.playback.advance(this.frame);
+    int color = -1;
+    for (int i = this.buffer.nextVisible(0); i >= 0; i = this.buffer.nextVisible(i + 1)) {
+      if (this.buffer.getRGB(i) != color) {
+        color = this.buffer.getRGB(i);
+        g2.setColor(new Color(color));
       }
+      this.buffer
+          .getRenderer(i)
+          .fill(
+              g2,
+              (int) this.buffer.getX(i),
+              (int) this.buffer.getY(i),
+              (int) this.buffer.getBase(i),
+              (int) this.buffer.getHeight(i));
     }
     this.timer.start();
   }
 
   @Override
   public void actionPerformed(ActionEvent e) {
-    this.frame = this.frame + 1;
-    if (this.repeat) {
-      if (this.frame > this.finalFrame) {
-        this.canvas.resetDynamicShapes();
-        this.frame = 0;
+    int next = this.frame + 1;
+    // the last frame of a partial snapshot is not the end of the animation, so only wrap once the
+    // whole file is loaded
+    if (this.repeat && (this.loader == null || this.loader.isLoaded())) {
+      if (next > this.finalFrame) {
+        next = 0;
       }
     }
+    // wait for the loader instead of playing a frame it has not read yet
+    if (this.loader == null || this.loader.isFrameLoaded(next)) {
+      this.frame = next;
+    }
     repaint();
+    if (this.loader != null && !this.failureReported && this.loader.getFailure() != null) {
+      this.failureReported = true;
+      JOptionPane.showMessageDialog(
+          this,
+          this.loader.getFailure().getMessage(),
+          "Could not load animation",
+          JOptionPane.ERROR_MESSAGE);
+    }
   }
 
   /**
@@ -6,6 +6,7 @@ import javax.naming.OperationNotSupportedException;
 
 import cs5004.animator.controller.Features;
 import cs5004.animator.model.canvas.ICanvas;
+import cs5004.animator.model.canvas.ProgressiveLoader;
 import cs5004.animator.view.GUIView;
 import cs5004.animator.view.IView;
 import cs5004.animator.view.controls.GUIPanel;
@@ -20,6 +21,7 @@ import javax.swing.JScrollPane;
 public class InteractiveView extends JFrame implements IView, GUIView {
 
   private final ICanvas canvas;
+  private final ProgressiveLoader loader;
   private final int fps;
   private int dynamicFps;
   private AnimationPanel animationPanel;
@@ -35,6 +37,22 @@ public class InteractiveView extends JFrame implements IView, GUIView {
    */
   public InteractiveView(ICanvas canvas, float delay) {
     this.canvas = canvas;
+    this.loader = null;
+    createAndShow((int) delay);
+    fps = 1000 / (int) delay;
+    dynamicFps = this.fps;
+  }
+
+  /**
+   * Create an instance of InteractiveView that starts playing while the animation is loaded.
+   * Saving waits for the whole animation to be loaded.
+   *
+   * @param loader the loader that is reading the animation.
+   * @param delay the delay (in ms) between frames of the animation.
+   */
+  public InteractiveView(ProgressiveLoader loader, float delay) {
+    this.canvas = loader.getCanvas();
+    this.loader = loader;
     createAndShow((int) delay);
     fps = 1000 / (int) delay;
     dynamicFps = this.fps;
@@ -44,7 +62,10 @@ public class InteractiveView extends JFrame implements IView, GUIView {
   public void createAndShow(int delay) {
     this.speedControls = new SpeedControls(1000 / delay);
     this.saveControls = new SaveControls();
-    this.animationPanel = new AnimationPanel(this.canvas, delay);
+    this.animationPanel =
+        this.loader == null
+            ? new AnimationPanel(this.canvas, delay)
+            : new AnimationPanel(this.loader, delay);
     this.animationPanel.setPreferredSize(
         new Dimension(this.canvas.getBorderWidth(), this.canvas.getBorderHeight()));
     JScrollPane scroll = new JScrollPane(this.animationPanel);
@@ -72,7 +93,6 @@ public class InteractiveView extends JFrame implements IView, GUIView {
     this.speedControls.setFps(this.fps);
     this.guiPanel.updatePlayPauseTitle("Pause");
     this.animationPanel.stopTimer();
-    this.canvas.resetDynamicShapes();
     this.animationPanel.setFrame(0);
     this.animationPanel.resetSpeed();
     this.animationPanel.setPaused(false);
@@ -122,13 +142,14 @@ public class InteractiveView extends JFrame implements IView, GUIView {
   public void saveFile(String ext) {
     String outFile = "output/" + saveControls.getFilename() + ext;
     float delay = 1000 / (float) this.dynamicFps;
+    ICanvas complete = this.loader == null ? this.canvas : this.loader.awaitCanvas();
     IView saveAs;
-    ICanvas newCanvas = this.canvas;
-    newCanvas.resetDynamicShapes();
     if (ext.equals(".svg")) {
-      saveAs = new SVGView(newCanvas, outFile, delay);
+      saveAs = new SVGView(complete, outFile, delay);
+    } else if (ext.equals(".svgz")) {
+      saveAs = new SVGView(complete, outFile, delay, saveControls.getCompressionLevel());
     } else {
-      saveAs = new TextView(newCanvas, outFile);
+      saveAs = new TextView(complete, outFile);
     }
     saveControls.setVisible(false);
   }
@@ -9,12 +9,14 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 
 import cs5004.animator.model.canvas.ICanvas;
+import cs5004.animator.model.canvas.ProgressiveLoader;
 import cs5004.animator.view.IView;
 
 /** Visual view class. */
 public class VisualView extends JFrame implements IView {
 
   private final ICanvas canvas;
+  private final ProgressiveLoader loader;
 
   /**
    * Constructor for a VisualView.
@@ -24,12 +26,28 @@ public class VisualView extends JFrame implements IView {
    */
   public VisualView(ICanvas c, float timerDelay) {
     this.canvas = c;
+    this.loader = null;
+    createAndShow((int) timerDelay);
+  }
+
+  /**
+   * Constructor for a VisualView that starts playing while the animation is loaded.
+   *
+   * @param loader the loader that is reading the animation.
+   * @param timerDelay the delay in milliseconds between frames of the animation.
+   */
+  public VisualView(ProgressiveLoader loader, float timerDelay) {
+    this.canvas = loader.getCanvas();
+    this.loader = loader;
     createAndShow((int) timerDelay);
   }
 
   @Override
   public void createAndShow(int delay) {
-    JPanel panel = new AnimationPanel(this.canvas, delay);
+    JPanel panel =
+        this.loader == null
+            ? new AnimationPanel(this.canvas, delay)
+            : new AnimationPanel(this.loader, delay);
     panel.setPreferredSize(
         new Dimension(this.canvas.getBorderWidth(), this.canvas.getBorderHeight()));
     JScrollPane scroll = new JScrollPane(panel);
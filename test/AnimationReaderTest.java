@@ -0,0 +1,275 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import cs5004.animator.util.AnimationBuilder;
+import cs5004.animator.util.AnimationReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+
+/** Tests for the AnimationReader. */
+public class AnimationReaderTest {
+
+  /** Builder that records every call as a line of text. */
+  private static class RecordingBuilder implements AnimationBuilder<String> {
+    private final StringBuilder log = new StringBuilder();
+
+    @Override
+    public String build() {
+      return this.log.toString();
+    }
+
+    @Override
+    public AnimationBuilder<String> setBounds(int x, int y, int width, int height) {
+      this.log.append(String.format("canvas %d %d %d %d\n", x, y, width, height));
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<String> declareShape(String name, String type) {
+      this.log.append(String.format("shape %s %s\n", name, type));
+      return this;
+    }
+
+    @Override
+    public AnimationBuilder<String> addMotion(
+        String name,
+        int t1,
+        int x1,
+        int y1,
+        int w1,
+        int h1,
+        int r1,
+        int g1,
+        int b1,
+        int t2,
+        int x2,
+        int y2,
+        int w2,
+        int h2,
+        int r2,
+        int g2,
+        int b2) {
+      int[] vals = {t1, x1, y1, w1, h1, r1, g1, b1, t2, x2, y2, w2, h2, r2, g2, b2};
+      this.log.append(String.format("motion %s %s\n", name, Arrays.toString(vals)));
+      return this;
+    }
+  }
+
+  /**
+   * Parse the given text with a recording builder.
+   *
+   * @param text the animation text.
+   * @return the recorded calls.
+   */
+  private static String parse(String text) throws FileNotFoundException {
+    return AnimationReader.parseFile(new StringReader(text), new RecordingBuilder());
+  }
+
+  /**
+   * Parse the given text and return the message of the exception it causes.
+   *
+   * @param text the animation text.
+   * @return the exception message.
+   */
+  private static String parseError(String text) throws FileNotFoundException {
+    try {
+      parse(text);
+    } catch (IllegalStateException e) {
+      return e.getMessage();
+    }
+    fail("Expected the input to be rejected.");
+    return null;
+  }
+
+  @Test
+  public void testParseWithCommentsAndWhitespace() throws FileNotFoundException {
+    String text =
+        "# a comment\n"
+            + "canvas 200 70\t360 360\r\n"
+            + "shape R#comment right after the name\n"
+            + "rectangle\n"
+            + "motion R 1 200 200 50 100 255 0 0    10 +200 -200 50 100 255 0 0\n"
+            + "  # trailing comment";
+    assertEquals(
+        "canvas 200 70 360 360\n"
+            + "shape R rectangle\n"
+            + "motion R [1, 200, 200, 50, 100, 255, 0, 0, 10, 200, -200, 50, 100, 255, 0, 0]\n",
+        parse(text));
+  }
+
+  @Test
+  public void testParseErrors() throws FileNotFoundException {
+    assertEquals("Unexpected keyword: circle C", parseError("circle C\nshape D ellipse"));
+    assertEquals(
+        "ICanvas: expected integer for width, got: 2147483648",
+        parseError("canvas 0 0 2147483648 10"));
+    assertEquals(
+        "Motion: expected integer for final time, but no more input available",
+        parseError("motion R 1 2 3 4 5 6 7 8"));
+    assertEquals(
+        "Shape: Expected a type, but no more input available", parseError("shape R # no type"));
+  }
+
+  @Test
+  public void testParseMappedFile() throws IOException {
+    String text =
+        "canvas 200 70 360 360\r\n"
+            + "shape F\u00f6rm ellipse # a comment\r\n"
+            + "motion F\u00f6rm 1 200 200 50 100 255 0 0    10 200 -200 50 100 255 0 0";
+    Path file = Files.createTempFile("animation", ".txt");
+    try {
+      Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+      assertEquals(parse(text), AnimationReader.parseFile(file, new RecordingBuilder()));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testParseStreamAndGzip() throws IOException {
+    String text =
+        "canvas 200 70 360 360\r\n"
+            + "shape F\u00f6rm ellipse # a comment\r\n"
+            + "motion F\u00f6rm 1 200 200 50 100 255 0 0    10 200 -200 50 100 255 0 0";
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(bytes);
+    }
+    String expected = parse(text);
+    assertEquals(
+        expected,
+        AnimationReader.parseFile(new ByteArrayInputStream(bytes), new RecordingBuilder()));
+    assertEquals(
+        expected,
+        AnimationReader.parseFile(
+            new ByteArrayInputStream(compressed.toByteArray()), new RecordingBuilder()));
+
+    Path file = Files.createTempFile("animation", ".txt.gz");
+    try {
+      Files.write(file, compressed.toByteArray());
+      assertEquals(expected, AnimationReader.parseFile(file, new RecordingBuilder(), true));
+      // a truncated gzip file is an error, not the end of the animation
+      Files.write(file, Arrays.copyOf(compressed.toByteArray(), compressed.size() - 10));
+      try {
+        AnimationReader.parseFile(file, new RecordingBuilder());
+        fail("Expected the truncated file to be rejected.");
+      } catch (IOException e) {
+        // expected
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testParseParallel() throws IOException {
+    Path file = Paths.get("resources/input/smalldemo.txt");
+    assertEquals(
+        AnimationReader.parseFile(file, new RecordingBuilder(), false),
+        AnimationReader.parseFile(file, new RecordingBuilder(), true));
+  }
+
+  @Test
+  public void testMotionsAreBatchedPerShape() throws FileNotFoundException {
+    String text =
+        "shape R rectangle\n"
+            + "motion R 1 0 0 1 1 0 0 0  2 0 0 1 1 0 0 0\n"
+            + "motion R 2 0 0 1 1 0 0 0  3 0 0 1 1 0 0 0\n"
+            + "motion C 1 0 0 1 1 0 0 0  2 0 0 1 1 0 0 0\n"
+            + "shape D ellipse\n"
+            + "motion R 3 0 0 1 1 0 0 0  4 0 0 1 1 0 0 0\n";
+    StringBuilder batches = new StringBuilder();
+    AnimationReader.parseFile(
+        new StringReader(text),
+        new RecordingBuilder() {
+          @Override
+          public AnimationBuilder<String> addMotions(
+              String name, int[] motions, int offset, int count) {
+            batches.append(name).append(count);
+            return super.addMotions(name, motions, offset, count);
+          }
+        });
+    assertEquals("R2C1R1", batches.toString());
+  }
+
+  @Test
+  public void testMotionsAreNotHeldWhileStreamWaits() throws IOException {
+    byte[] first =
+        ("shape R rectangle\n"
+                + "motion R 1 0 0 1 1 0 0 0  2 0 0 1 1 0 0 0\n"
+                + "motion R 2 0 0 1 1 0 0 0  3 0 0 1 1 0 0 0\n")
+            .getBytes(StandardCharsets.UTF_8);
+    byte[] second =
+        "motion R 3 0 0 1 1 0 0 0  4 0 0 1 1 0 0 0\n".getBytes(StandardCharsets.UTF_8);
+    RecordingBuilder builder = new RecordingBuilder();
+    StringBuilder atPause = new StringBuilder();
+    // a pipe that runs dry after the first part, and records what the builder has by then
+    FilterInputStream pipe =
+        new FilterInputStream(
+            new SequenceInputStream(
+                new ByteArrayInputStream(first), new ByteArrayInputStream(second))) {
+          @Override
+          public int read(byte[] b, int off, int len) throws IOException {
+            if (this.in.available() == 0 && atPause.length() == 0) {
+              atPause.append(builder.log);
+            }
+            return super.read(b, off, len);
+          }
+        };
+    String log = AnimationReader.parseFile(pipe, builder);
+    assertEquals(2, atPause.toString().split("motion R", -1).length - 1);
+    assertEquals(3, log.split("motion R", -1).length - 1);
+  }
+
+  @Test
+  public void testBuilderErrorBeforeParseError() throws FileNotFoundException {
+    String text =
+        "motion R 1 0 0 1 1 0 0 0  2 0 0 1 1 0 0 0\n"
+            + "motion R 2 0 0 1 1 0 0 0  3 0 0 1 1 0 0 0\n"
+            + "motion R 3 0 0 1 1 0 0 0  x";
+    try {
+      AnimationReader.parseFile(
+          new StringReader(text),
+          new RecordingBuilder() {
+            @Override
+            public AnimationBuilder<String> addMotion(
+                String name,
+                int t1,
+                int x1,
+                int y1,
+                int w1,
+                int h1,
+                int r1,
+                int g1,
+                int b1,
+                int t2,
+                int x2,
+                int y2,
+                int w2,
+                int h2,
+                int r2,
+                int g2,
+                int b2) {
+              throw new IllegalArgumentException("Rejected motion at " + t1);
+            }
+          });
+      fail("Expected the motion to be rejected.");
+    } catch (IllegalArgumentException e) {
+      // the builder sees the first motion before the reader reaches the bad token
+      assertEquals("Rejected motion at 1", e.getMessage());
+    }
+  }
+}
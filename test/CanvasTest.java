@@ -1,11 +1,21 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import cs5004.animator.model.canvas.AnimationCache;
+import cs5004.animator.model.canvas.CompiledAnimationFile;
+import cs5004.animator.model.canvas.FrameBuffer;
 import cs5004.animator.model.canvas.ICanvas;
 import cs5004.animator.model.canvas.ICanvasModel;
+import cs5004.animator.model.canvas.MotionWatermark;
+import cs5004.animator.model.canvas.PlaybackEvaluator;
+import cs5004.animator.model.canvas.ProgressiveLoader;
 import cs5004.animator.model.shape.Oval;
 import cs5004.animator.model.shape.Point2D;
 import cs5004.animator.model.shape.Rectangle;
 import cs5004.animator.model.shape.Shape;
+import cs5004.animator.model.shape.ShapeRenderer;
 import cs5004.animator.model.transformation.ChangeColorT;
 import cs5004.animator.model.transformation.ChangeVisibilityT;
 import cs5004.animator.model.transformation.MoveT;
@@ -13,7 +23,17 @@ import cs5004.animator.model.transformation.ResizeT;
 import cs5004.animator.model.transformation.Transformation;
 import cs5004.animator.model.transformation.dimension;
 import java.awt.Color;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -108,6 +128,29 @@ public class CanvasTest {
         this.canvas.toString());
   }
 
+  @Test
+  public void testRemoveShapeBeforeOthers() {
+    Shape last = new Rectangle("last", 0, 0, 5, 5, 0, 0, 0);
+    this.canvas.addShape(rectangle1);
+    this.canvas.addShape(oval1);
+    this.canvas.addShape(last);
+    this.canvas.addTransformation("r", changeRVis);
+    this.canvas.addTransformation("o", changeOVis);
+    this.canvas.addTransformation("last", new ChangeVisibilityT(last, 0, 20));
+    this.canvas.removeShape("r");
+
+    ArrayList<Shape> shapes = this.canvas.getShapesAtFrame(7);
+    assertEquals(2, shapes.size());
+    assertEquals("o", shapes.get(0).getIdentifier());
+    assertEquals("last", shapes.get(1).getIdentifier());
+    assertEquals(last, this.canvas.getShapeById("last"));
+
+    // a removed name can be declared again, after the remaining shapes
+    this.canvas.addShape(rectangle1);
+    assertEquals("r", this.canvas.getInitialShapes().get(2).getIdentifier());
+    assertEquals(3, this.canvas.getShapesAtFrame(7).size());
+  }
+
   @Test
   public void testAddTransformation() {
     this.canvas.addShape(rectangle1);
@@ -289,4 +332,511 @@ public class CanvasTest {
             + "Color: (255, 255, 153)\n",
         after.toString());
   }
+
+  @Test
+  public void testGetShapesAtFrameAfterCompileTimeline() {
+    this.canvas.addShape(rectangle1);
+    this.canvas.addTransformation("r", changeRVis);
+    this.canvas.compileTimeline();
+    assertEquals(200.0, this.canvas.getShapesAtFrame(15).get(0).getPosition().getX(), 0.001);
+
+    // adding a transformation after compiling must be picked up by the next frame
+    this.canvas.addTransformation("r", move);
+    Shape r = this.canvas.getShapesAtFrame(15).get(0);
+    assertEquals(112.5, r.getPosition().getX(), 0.001);
+    assertEquals(90.0, r.getPosition().getY(), 0.001);
+    assertEquals(false, r.isVisible());
+    assertEquals(true, this.canvas.getShapesAtFrame(5).get(0).isVisible());
+  }
+
+  @Test
+  public void testGetShapesAtFrameSkipsHeldShapes() {
+    this.canvas.addShape(rectangle1);
+    this.canvas.addShape(oval1);
+    this.canvas.addTransformation("r", changeRVis);
+    this.canvas.addTransformation("r", move);
+    this.canvas.addTransformation("o", changeOVis);
+    this.canvas.addTransformation("o", changeOColor);
+    this.canvas.addTransformation("o", resize);
+    float[] frames = {0, 3, 8, 12, 14, 20, 25, 16, 2, 30, 11, 0};
+    for (float frame : frames) {
+      assertEquals(
+          this.canvas.stateAt(frame).toString(), this.canvas.getShapesAtFrame(frame).toString());
+    }
+
+    // a shape is not updated again while no transformation of it is in progress
+    Shape r = this.canvas.getShapesAtFrame(1).get(0);
+    r.setPosition(0, 0);
+    assertEquals(0.0, this.canvas.getShapesAtFrame(2).get(0).getPosition().getX(), 0.001);
+    assertEquals(165.0, this.canvas.getShapesAtFrame(12).get(0).getPosition().getX(), 0.001);
+
+    // a transformation added where a shape was held is picked up by the next frame
+    this.canvas.getShapesAtFrame(8);
+    this.canvas.addTransformation("o", new ChangeColorT(oval1, 7, 9, 255, 255, 153, 0, 0, 0));
+    for (float frame : frames) {
+      assertEquals(
+          this.canvas.stateAt(frame).toString(), this.canvas.getShapesAtFrame(frame).toString());
+    }
+  }
+
+  @Test
+  public void testEvaluateFrame() {
+    this.canvas.addShape(rectangle1);
+    this.canvas.addShape(oval1);
+    this.canvas.addTransformation("r", changeRVis);
+    this.canvas.addTransformation("r", move);
+    this.canvas.addTransformation("o", changeOVis);
+    this.canvas.addTransformation("o", changeOColor);
+    this.canvas.addTransformation("o", resize);
+    FrameBuffer buffer = this.canvas.createFrameBuffer();
+
+    this.canvas.evaluateFrame(12, buffer);
+    assertEquals(2, buffer.size());
+    assertEquals("r", buffer.getIdentifier(0));
+    assertEquals(true, buffer.isVisible(0));
+    assertEquals(165.0, buffer.getX(0), 0.001);
+    assertEquals(84.0, buffer.getY(0), 0.001);
+    assertEquals(false, buffer.isVisible(1));
+    assertEquals(0, buffer.nextVisible(0));
+    assertEquals(-1, buffer.nextVisible(1));
+
+    // frames can be evaluated in any order
+    this.canvas.evaluateFrame(5, buffer);
+    assertEquals(200.0, buffer.getX(0), 0.001);
+    assertEquals(true, buffer.isVisible(1));
+    assertEquals(ShapeRenderer.OVAL, buffer.getRenderer(1));
+    assertEquals(60.0, buffer.getBase(1), 0.001);
+    assertEquals(0xFFEB8C, buffer.getRGB(1));
+
+    this.canvas.evaluateFrame(20, buffer);
+    assertEquals(-1, buffer.nextVisible(0));
+  }
+
+  @Test
+  public void testEvaluateFrameSkipsHeldShapes() throws FileNotFoundException {
+    ICanvas buildings = new ICanvasModel.Builder("resources/input/buildings.txt").getCanvas();
+    FrameBuffer buffer = buildings.createFrameBuffer();
+    float[] frames = {0, 1, 40, 60, 150, 100, 3, 200, 199, 120};
+    for (float frame : frames) {
+      buildings.evaluateFrame(frame, buffer);
+      assertBufferMatches(buildings.stateAt(frame), buffer);
+    }
+
+    // a recompiled timeline does not reuse the held ranges of the old one
+    this.canvas.addShape(oval1);
+    this.canvas.addTransformation("o", changeOVis);
+    buffer = this.canvas.createFrameBuffer();
+    this.canvas.evaluateFrame(8, buffer);
+    this.canvas.addTransformation("o", new ChangeColorT(oval1, 7, 9, 255, 178, 102, 0, 0, 0));
+    this.canvas.evaluateFrame(8, buffer);
+    assertBufferMatches(this.canvas.stateAt(8), buffer);
+  }
+
+  /**
+   * Check that the visible shapes in a frame buffer have the given states.
+   *
+   * @param expected the state of every shape.
+   * @param buffer the frame buffer.
+   */
+  private static void assertBufferMatches(ArrayList<Shape> expected, FrameBuffer buffer) {
+    for (int i = 0; i < expected.size(); i++) {
+      Shape s = expected.get(i);
+      assertEquals(s.isVisible(), buffer.isVisible(i));
+      if (s.isVisible()) {
+        assertEquals(s.getPosition().getX(), buffer.getX(i), 0.001);
+        assertEquals(s.getPosition().getY(), buffer.getY(i), 0.001);
+        assertEquals(s.getBase(), buffer.getBase(i), 0.001);
+        assertEquals(s.getHeight(), buffer.getHeight(i), 0.001);
+        assertEquals(s.getColor().getRGB() & 0xFFFFFF, buffer.getRGB(i));
+      }
+    }
+  }
+
+  @Test
+  public void testEvaluateFrameDoesNotAllocate() throws FileNotFoundException {
+    ICanvas toh = new ICanvasModel.Builder("resources/input/toh-5.txt").getCanvas();
+    FrameBuffer buffer = toh.createFrameBuffer();
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long id = Thread.currentThread().getId();
+
+    // warm up until the evaluation runs fully compiled code
+    for (int i = 0; i < 200000; i++) {
+      toh.evaluateFrame(i % 500, buffer);
+    }
+    // the first reading of the counter may itself allocate
+    threads.getThreadAllocatedBytes(id);
+    for (int round = 0; round < 5; round++) {
+      long before = threads.getThreadAllocatedBytes(id);
+      for (int i = 0; i < 500; i++) {
+        toh.evaluateFrame(i, buffer);
+      }
+      assertEquals(0, threads.getThreadAllocatedBytes(id) - before);
+    }
+  }
+
+  @Test
+  public void testStateAt() {
+    this.canvas.addShape(rectangle1);
+    this.canvas.addShape(oval1);
+    this.canvas.addTransformation("r", changeRVis);
+    this.canvas.addTransformation("r", move);
+    this.canvas.addTransformation("o", resize);
+
+    ArrayList<Shape> end = this.canvas.stateAt(20);
+    ArrayList<Shape> middle = this.canvas.stateAt(12);
+    ArrayList<Shape> start = this.canvas.stateAt(0);
+    assertEquals(25.0, end.get(0).getPosition().getX(), 0.001);
+    assertEquals(80.0, end.get(1).getBase(), 0.001);
+    assertEquals(165.0, middle.get(0).getPosition().getX(), 0.001);
+    assertEquals(true, middle.get(0).isVisible());
+    assertEquals(60.0, middle.get(1).getBase(), 0.001);
+    assertEquals(200.0, start.get(0).getPosition().getX(), 0.001);
+    assertEquals(60.0, start.get(1).getBase(), 0.001);
+
+    // the shapes returned by stateAt are not shared with the canvas
+    assertEquals(200.0, this.canvas.getShapesAtFrame(0).get(0).getPosition().getX(), 0.001);
+    assertEquals(25.0, end.get(0).getPosition().getX(), 0.001);
+  }
+
+  @Test
+  public void testParallelEvaluateFrameMatchesSequential() {
+    for (int i = 0; i < 3000; i++) {
+      Shape s = new Rectangle("r" + i, i, 0, 10, 10, i % 256, 0, 0);
+      this.canvas.addShape(s);
+      this.canvas.addTransformation("r" + i, new ChangeVisibilityT(s, i % 7, 50));
+      this.canvas.addTransformation("r" + i, new MoveT(s, 0, 40, i, 0, i, 2 * i));
+    }
+    FrameBuffer sequential = this.canvas.createFrameBuffer();
+    FrameBuffer parallel = this.canvas.createFrameBuffer();
+    for (int frame = 0; frame < 60; frame += 3) {
+      this.canvas.setParallelThreshold(Integer.MAX_VALUE);
+      this.canvas.evaluateFrame(frame, sequential);
+      this.canvas.setParallelThreshold(0);
+      this.canvas.evaluateFrame(frame, parallel);
+      for (int i = 0; i < 3000; i++) {
+        assertEquals(sequential.isVisible(i), parallel.isVisible(i));
+        if (sequential.isVisible(i)) {
+          assertEquals(sequential.getY(i), parallel.getY(i), 0.001);
+          assertEquals(sequential.getRGB(i), parallel.getRGB(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPlaybackEvaluatorMatchesStateAt() {
+    this.canvas.addShape(rectangle1);
+    this.canvas.addShape(oval1);
+    this.canvas.addTransformation("r", changeRVis);
+    this.canvas.addTransformation("r", changeRColor);
+    this.canvas.addTransformation("r", move);
+    this.canvas.addTransformation("o", changeOVis);
+    this.canvas.addTransformation("o", changeOColor);
+    this.canvas.addTransformation("o", resize);
+    PlaybackEvaluator playback = this.canvas.createPlaybackEvaluator();
+    FrameBuffer buffer = playback.getBuffer();
+
+    // play forward, then jump back and forward again
+    int[] frames = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 3, 9, 14};
+    for (int frame : frames) {
+      playback.advance(frame);
+      assertEquals(frame, playback.getFrame(), 0.001);
+      ArrayList<Shape> expected = this.canvas.stateAt(frame);
+      for (int i = 0; i < expected.size(); i++) {
+        Shape s = expected.get(i);
+        assertEquals(s.isVisible(), buffer.isVisible(i));
+        if (s.isVisible()) {
+          assertEquals(s.getPosition().getX(), buffer.getX(i), 0.001);
+          assertEquals(s.getPosition().getY(), buffer.getY(i), 0.001);
+          assertEquals(s.getBase(), buffer.getBase(i), 0.001);
+          assertEquals(s.getColor().getRGB() & 0xFFFFFF, buffer.getRGB(i));
+        }
+      }
+    }
+  }
+
+  /** Test that seeking from a checkpoint gives the same state as evaluating from scratch. */
+  @Test
+  public void testPlaybackEvaluatorCheckpoints() {
+    this.canvas.addShape(rectangle1);
+    this.canvas.addShape(oval1);
+    this.canvas.addTransformation("r", changeRVis);
+    this.canvas.addTransformation("r", changeRColor);
+    this.canvas.addTransformation("r", move);
+    this.canvas.addTransformation("o", changeOVis);
+    this.canvas.addTransformation("o", changeOColor);
+    this.canvas.addTransformation("o", resize);
+    PlaybackEvaluator playback = this.canvas.createPlaybackEvaluator();
+    PlaybackEvaluator fresh = this.canvas.createPlaybackEvaluator();
+    fresh.setCheckpointPolicy(0, 0);
+    // a checkpoint of 2 shapes takes 56 bytes, so only 3 fit and the interval has to grow twice
+    playback.setCheckpointPolicy(2, 200);
+    for (int frame = 0; frame <= 16; frame++) {
+      playback.advance(frame);
+    }
+    assertEquals(8, playback.getCheckpointInterval());
+
+    float[] seeks = {13, 2, 7.5f, 16, 0, 11};
+    for (float frame : seeks) {
+      playback.seek(frame);
+      fresh.seek(frame);
+      assertEquals(frame, playback.getFrame(), 0.001);
+      FrameBuffer a = playback.getBuffer();
+      FrameBuffer b = fresh.getBuffer();
+      for (int i = 0; i < a.size(); i++) {
+        assertEquals(b.isVisible(i), a.isVisible(i));
+        if (a.isVisible(i)) {
+          assertEquals(b.getX(i), a.getX(i), 0.001);
+          assertEquals(b.getY(i), a.getY(i), 0.001);
+          assertEquals(b.getBase(i), a.getBase(i), 0.001);
+          assertEquals(b.getHeight(i), a.getHeight(i), 0.001);
+          assertEquals(b.getRGB(i), a.getRGB(i));
+        }
+      }
+    }
+  }
+
+  /** Test that only shapes with a transformation in progress are re-evaluated. */
+  @Test
+  public void testPlaybackEvaluatorActiveShapes() {
+    this.canvas.addShape(rectangle1);
+    this.canvas.addShape(oval1);
+    this.canvas.addTransformation("r", changeRVis);
+    this.canvas.addTransformation("r", changeRColor);
+    this.canvas.addTransformation("r", move);
+    this.canvas.addTransformation("o", changeOVis);
+    this.canvas.addTransformation("o", changeOColor);
+    this.canvas.addTransformation("o", resize);
+    PlaybackEvaluator playback = this.canvas.createPlaybackEvaluator();
+
+    // the oval is visible from frame 0, but only its color changes until frame 6
+    int[] frames = {0, 3, 6, 8, 11, 16, 21};
+    int[] active = {0, 1, 0, 1, 1, 2, 0};
+    for (int i = 0; i < frames.length; i++) {
+      playback.advance(frames[i]);
+      assertEquals(active[i], playback.getActiveCount());
+    }
+    playback.seek(3);
+    assertEquals(1, playback.getActiveCount());
+  }
+
+  /** Test that a negative checkpoint policy is rejected. */
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeCheckpointInterval() {
+    this.canvas.createPlaybackEvaluator().setCheckpointPolicy(-1, 0);
+  }
+
+  /** Test that loading a file progressively ends with the same canvas as the Builder. */
+  @Test
+  public void testProgressiveLoader() throws FileNotFoundException {
+    String file = "resources/input/smalldemo.txt";
+    ProgressiveLoader loader = new ProgressiveLoader(file);
+    ICanvas loaded = loader.awaitCanvas();
+    assertTrue(loader.isLoaded());
+    assertTrue(loader.isFrameLoaded(Float.MAX_VALUE));
+    assertEquals(new ICanvasModel.Builder(file).getCanvas().toString(), loaded.toString());
+    assertEquals(loaded, loader.getCanvas());
+  }
+
+  /** Test that the watermark never claims a frame that a later motion changes. */
+  @Test
+  public void testMotionWatermark() throws IOException {
+    List<String> toh = Files.readAllLines(Paths.get("resources/input/toh-3.txt"));
+    assertTrue(claimsOnlyFinalFrames(toh) > 0);
+
+    // the same motions, listed shape by shape
+    List<String> grouped = new ArrayList<>(toh);
+    grouped.sort(
+        Comparator.comparing(
+            (String line) -> line.startsWith("motion") ? line.split("\\s+")[1] : ""));
+    assertEquals(0, claimsOnlyFinalFrames(grouped), 0.001);
+    assertEquals(
+        0, claimsOnlyFinalFrames(Files.readAllLines(Paths.get("resources/input/hanoi.txt"))), 0.001);
+    claimsOnlyFinalFrames(Files.readAllLines(Paths.get("resources/input/buildings.txt")));
+  }
+
+  /**
+   * Pass the shapes and motions of an animation to a watermark, and check that no motion starts
+   * before the watermark reached by the motions read before it.
+   *
+   * @param lines the lines of the animation.
+   * @return the highest watermark reached.
+   */
+  private static float claimsOnlyFinalFrames(List<String> lines) {
+    MotionWatermark watermark = new MotionWatermark();
+    float highest = 0;
+    for (String line : lines) {
+      String[] words = line.trim().split("\\s+");
+      if (words[0].equals("shape")) {
+        watermark.declareShape(words[1]);
+      } else if (words[0].equals("motion")) {
+        int start = Integer.parseInt(words[2]);
+        assertTrue(line + " starts before frame " + highest, start >= highest);
+        watermark.addMotion(words[1], start);
+        highest = Math.max(highest, watermark.getFrame());
+      }
+    }
+    return highest;
+  }
+
+  /** Test that an error after the first snapshot is kept for the view. */
+  @Test
+  public void testProgressiveLoaderFailure() throws IOException {
+    Path file = Files.createTempFile("animation", ".txt");
+    try {
+      Files.write(file, "canvas 0 0 100 100\nshape R rectangle\nrotate R 90\n".getBytes());
+      ProgressiveLoader loader = new ProgressiveLoader(file.toString());
+      try {
+        loader.awaitCanvas();
+        fail("The unknown keyword should stop the loader.");
+      } catch (IllegalStateException e) {
+        assertTrue(loader.isLoaded());
+        assertTrue(loader.getFailure().getMessage().startsWith("Unexpected keyword: rotate"));
+        assertEquals(0, loader.getCanvas().getInitialShapes().size());
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /** Test that a missing file is reported before loading starts. */
+  @Test(expected = FileNotFoundException.class)
+  public void testProgressiveLoaderMissingFile() throws FileNotFoundException {
+    new ProgressiveLoader("resources/input/missing.txt");
+  }
+
+  /** Test that a compiled animation loads back into the same canvas. */
+  @Test
+  public void testCompiledAnimationFile() throws IOException {
+    String file = "resources/input/smalldemo.txt";
+    ICanvas text = new ICanvasModel.Builder(file).getCanvas();
+    Path compiled = Files.createTempFile("animation", ".anim");
+    try {
+      CompiledAnimationFile.write(text, compiled);
+      assertTrue(CompiledAnimationFile.isCompiled(compiled));
+      assertFalse(CompiledAnimationFile.isCompiled(Paths.get(file)));
+      ICanvas loaded = new ICanvasModel.Builder(compiled.toString()).getCanvas();
+      assertEquals(text.toString(), loaded.toString());
+      assertEquals(text.toSVGString(50), loaded.toSVGString(50));
+      for (float f = 0; f <= 100; f += 5) {
+        assertEquals(text.stateAt(f).toString(), loaded.stateAt(f).toString());
+      }
+    } finally {
+      Files.delete(compiled);
+    }
+  }
+
+  /** Test that a truncated compiled animation is rejected. */
+  @Test(expected = IOException.class)
+  public void testTruncatedCompiledAnimationFile() throws IOException {
+    Path compiled = Files.createTempFile("animation", ".anim");
+    try {
+      CompiledAnimationFile.write(this.canvas, compiled);
+      byte[] bytes = Files.readAllBytes(compiled);
+      Files.write(compiled, Arrays.copyOf(bytes, bytes.length - 1));
+      CompiledAnimationFile.read(compiled);
+    } finally {
+      Files.delete(compiled);
+    }
+  }
+
+  /** Test that the cache stores a parsed file, loads it back, and evicts when it is full. */
+  @Test
+  public void testAnimationCache() throws IOException {
+    Path directory = Files.createTempDirectory("cache");
+    Path input = Paths.get("resources/input/smalldemo.txt");
+    String expected = new ICanvasModel.Builder(input.toString()).getCanvas().toString();
+    AnimationCache cache = new AnimationCache(directory, AnimationCache.DEFAULT_MAX_SIZE);
+    assertEquals(expected, cache.load(input).toString());
+    assertEquals(1, directory.toFile().list().length);
+    ICanvas cached = new ICanvasModel.Builder(input.toString(), cache).getCanvas();
+    assertEquals(expected, cached.toString());
+    assertEquals(1, directory.toFile().list().length);
+    cache.clear();
+    assertEquals(0, directory.toFile().list().length);
+    assertEquals(expected, new AnimationCache(directory, 0).load(input).toString());
+    assertEquals(0, directory.toFile().list().length);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void testParallelSVG() throws IOException {
+    for (String input : new String[] {"big-bang-big-crunch.txt", "toh-12.txt", "smalldemo.txt"}) {
+      ICanvas canvas = new ICanvasModel.Builder("resources/input/" + input).getCanvas();
+      StringWriter sequential = new StringWriter();
+      StringWriter parallel = new StringWriter();
+      canvas.writeSVG(50, sequential, false);
+      canvas.writeSVG(50, parallel, true);
+      assertEquals(sequential.toString(), parallel.toString());
+      assertEquals(canvas.toSVGString(50), parallel.toString());
+    }
+  }
+
+  @Test
+  public void testCompactSVG() throws IOException {
+    ICanvas canvas = new ICanvasModel.Builder("resources/input/smalldemo.txt").getCanvas();
+    StringWriter out = new StringWriter();
+    canvas.writeCompactSVG(50, out);
+    assertEquals(
+        "<svg viewBox=\"200 70 360 360\" xmlns=\"http://www.w3.org/2000/svg\">\n"
+            + "\t<rect id=\"R\" x=\"200\" y=\"200\" width=\"50\" height=\"100\" "
+            + "fill=\"#ff0000\" visibility=\"hidden\">\n"
+            + "\t\t<set attributeName=\"visibility\" to=\"visible\" begin=\"50ms\" "
+            + "fill=\"freeze\"/>\n"
+            + "\t\t<animate attributeName=\"x\" values=\"200;300;300;200\" "
+            + "keyTimes=\"0;0.44444;0.66667;1\" begin=\"500ms\" dur=\"4500ms\" "
+            + "fill=\"freeze\"/>\n"
+            + "\t\t<animate attributeName=\"y\" values=\"200;300;300;200\" "
+            + "keyTimes=\"0;0.44444;0.66667;1\" begin=\"500ms\" dur=\"4500ms\" "
+            + "fill=\"freeze\"/>\n"
+            + "\t\t<animate attributeName=\"width\" from=\"50\" to=\"25\" begin=\"2550ms\" "
+            + "dur=\"950ms\" fill=\"freeze\"/>\n"
+            + "\t</rect>\n"
+            + "\t<ellipse id=\"C\" cx=\"440\" cy=\"70\" rx=\"60\" ry=\"30\" fill=\"#0000ff\" "
+            + "visibility=\"hidden\">\n"
+            + "\t\t<set attributeName=\"visibility\" to=\"visible\" begin=\"300ms\" "
+            + "fill=\"freeze\"/>\n"
+            + "\t\t<animate attributeName=\"cy\" values=\"70;250;370\" keyTimes=\"0;0.6;1\" "
+            + "begin=\"1000ms\" dur=\"2500ms\" fill=\"freeze\"/>\n"
+            + "\t\t<animate attributeName=\"fill\" values=\"#0000ff;#00aa55;#00ff00\" "
+            + "keyTimes=\"0;0.66667;1\" begin=\"2500ms\" dur=\"1500ms\" fill=\"freeze\"/>\n"
+            + "\t</ellipse>\n"
+            + "</svg>",
+        out.toString());
+  }
+
+  @Test
+  public void testDeferredConflictChecks() throws IOException {
+    String input = "resources/input/smalldemo.txt";
+    assertEquals(
+        new ICanvasModel.Builder(input).getCanvas().toString(),
+        new ICanvasModel.Builder(input, null, true).getCanvas().toString());
+
+    Path file = Files.createTempFile("conflicts", ".txt");
+    Files.write(
+        file,
+        Arrays.asList(
+            "canvas 0 0 100 100",
+            "shape R rectangle",
+            "motion R 1 0 0 10 10 0 0 0  10 5 5 10 10 0 0 0",
+            "motion R 5 5 5 10 10 0 0 0  20 9 9 10 10 0 0 0",
+            "# a comment",
+            "shape C ellipse",
+            "motion C 1 0 0 5 5 0 0 0  10 0 0 5 5 255 0 0",
+            "motion C 2 0 0 5 5 0 0 0",
+            "  8 0 0 5 5 0 255 0"));
+    try {
+      new ICanvasModel.Builder(file.toString(), null, true);
+      fail("Expected the conflicts to be reported.");
+    } catch (IllegalArgumentException e) {
+      assertEquals(
+          "Conflicting Transformation - could not add.\n"
+              + "line 4: Move of R from frame 5 to 20\n"
+              + "line 8: ChangeColor of C from frame 2 to 8",
+          e.getMessage());
+    } finally {
+      Files.delete(file);
+    }
+  }
 }
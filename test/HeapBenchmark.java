@@ -0,0 +1,58 @@
+import cs5004.animator.model.canvas.ICanvas;
+import cs5004.animator.model.canvas.ICanvasModel;
+import java.io.FileNotFoundException;
+
+/**
+ * Benchmark of the heap retained by a loaded animation: the used heap after garbage collection,
+ * with and without a reference to the canvas. Run it with a fixed heap, so the collector behaves
+ * the same between runs: from the IDE with -Xmx1g in the VM options, or from the project directory
+ * after building it in the IDE:
+ *
+ * <pre>
+ *   java -Xmx1g -cp out/production/Assignment_6:out/test/Assignment_6 HeapBenchmark [files...]
+ * </pre>
+ */
+public class HeapBenchmark {
+
+  /**
+   * Run the benchmark.
+   *
+   * @param args the animation files, toh-12 and big-bang-big-crunch by default.
+   * @throws FileNotFoundException if a file is not found.
+   */
+  public static void main(String[] args) throws FileNotFoundException {
+    if (args.length == 0) {
+      args =
+          new String[] {"resources/input/toh-12.txt", "resources/input/big-bang-big-crunch.txt"};
+    }
+    for (String file : args) {
+      // load once so the classes are loaded before measuring
+      new ICanvasModel.Builder(file).getCanvas();
+      long before = usedHeap();
+      ICanvas canvas = new ICanvasModel.Builder(file).getCanvas();
+      long after = usedHeap();
+      System.out.printf(
+          "%s (%d shapes): retained %.1f MB%n",
+          file, canvas.getInitialShapes().size(), (after - before) / 1e6);
+    }
+  }
+
+  /**
+   * Returns the used heap after collecting garbage until it stops shrinking.
+   *
+   * @return the used heap, in bytes.
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+      long now = runtime.totalMemory() - runtime.freeMemory();
+      if (now >= used) {
+        break;
+      }
+      used = now;
+    }
+    return used;
+  }
+}
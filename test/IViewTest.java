@@ -14,9 +14,13 @@ import cs5004.animator.view.IView;
 import cs5004.animator.view.text.SVGView;
 import cs5004.animator.view.text.TextView;
 import cs5004.animator.view.visual.VisualView;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
 import javax.naming.OperationNotSupportedException;
 import org.junit.Before;
 import org.junit.Test;
@@ -210,4 +214,25 @@ public class IViewTest {
     Path svgPath = Paths.get("test/output/svg-file.svg");
     assertTrue(Files.exists(svgPath));
   }
+
+  @Test
+  public void testCreateCompressedFile() throws IOException {
+    ICanvas canvas = new ICanvasModel.Builder("resources/input/smalldemo.txt").getCanvas();
+    Path svgzPath = Paths.get("test/output/svgz-file.svgz");
+    try {
+      new SVGView(canvas, svgzPath.toString(), 50, 9);
+      ByteArrayOutputStream text = new ByteArrayOutputStream();
+      try (InputStream in = new GZIPInputStream(Files.newInputStream(svgzPath))) {
+        in.transferTo(text);
+      }
+      assertEquals(canvas.toSVGString(50), text.toString());
+    } finally {
+      Files.deleteIfExists(svgzPath);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCompressionLevel() {
+    new SVGView(this.c, "test/output/svgz-file.svgz", 1000, 10);
+  }
 }
@@ -0,0 +1,79 @@
+import cs5004.animator.model.canvas.ICanvasModel;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Benchmark of the time to load a shape with many motions, which is dominated by the conflict
+ * checks of addTransformation. Each generated file holds one rectangle with k chained motions that
+ * each change its color, position and size; the load time should grow linearly with k. Run its main
+ * method from the IDE, or run it from the project directory after building it in the IDE, which
+ * compiles into out/:
+ *
+ * <pre>
+ *   java -cp out/production/Assignment_6:out/test/Assignment_6 LoadBenchmark [motion counts...]
+ * </pre>
+ */
+public class LoadBenchmark {
+  private static final int RUNS = 3;
+
+  /**
+   * Run the benchmark.
+   *
+   * @param args the numbers of motions to load, 5000 to 40000 by default.
+   * @throws IOException if a temporary file cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    int[] counts = {5000, 10000, 20000, 40000};
+    if (args.length > 0) {
+      counts = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        counts[i] = Integer.parseInt(args[i]);
+      }
+    }
+    for (int k : counts) {
+      Path file = Files.createTempFile("motions", ".txt");
+      try {
+        writeMotions(file, k);
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+          long start = System.nanoTime();
+          new ICanvasModel.Builder(file.toString()).getCanvas();
+          best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("k=%6d  best load %8.1f ms%n", k, best / 1e6);
+      } finally {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /**
+   * Write an animation with one rectangle and a chain of motions.
+   *
+   * @param file the file to write.
+   * @param k the number of motions.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void writeMotions(Path file, int k) throws IOException {
+    try (Writer out = Files.newBufferedWriter(file)) {
+      out.write("canvas 0 0 800 800\nshape R rectangle\n");
+      for (int i = 0; i < k; i++) {
+        out.write("motion R " + state(i) + " " + state(i + 1) + "\n");
+      }
+    }
+  }
+
+  /**
+   * Returns the state of the rectangle at a tick, which alternates between two states.
+   *
+   * @param t the tick.
+   * @return the tick followed by the position, size and color.
+   */
+  private static String state(int t) {
+    int p = t % 2;
+    return t + " " + (100 + 50 * p) + " " + (100 + 50 * p) + " " + (20 + 10 * p) + " "
+        + (20 + 10 * p) + " " + 255 * p + " 0 " + 255 * (1 - p);
+  }
+}
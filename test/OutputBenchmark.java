@@ -0,0 +1,112 @@
+import cs5004.animator.model.canvas.ICanvas;
+import cs5004.animator.model.canvas.ICanvasModel;
+import cs5004.animator.util.OutputEncoder;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Benchmark of the output formatting. It first compares String.format with OutputEncoder on the
+ * numbers an SVG file is made of, then times the SVG and text export of animation files. Run it
+ * from the IDE, or from the project directory once the IDE has built the module:
+ *
+ * <pre>
+ *   java -cp out/production/Assignment_6:out/test/Assignment_6 OutputBenchmark [input files...]
+ * </pre>
+ */
+public class OutputBenchmark {
+  private static final int NUMBERS = 1_000_000;
+  private static final int RUNS = 5;
+
+  /**
+   * Run the benchmark.
+   *
+   * @param args the animation files, big-bang-big-crunch and toh-12 by default.
+   * @throws IOException if a file cannot be read.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      args =
+          new String[] {"resources/input/big-bang-big-crunch.txt", "resources/input/toh-12.txt"};
+    }
+    Random random = new Random(42);
+    double[] numbers = new double[NUMBERS];
+    for (int i = 0; i < NUMBERS; i++) {
+      numbers[i] = random.nextInt(1_000_000) / 100.0;
+    }
+    long bestFormat = Long.MAX_VALUE;
+    long bestEncoder = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      long length = 0;
+      for (double number : numbers) {
+        length += String.format("%.1f", number).length();
+      }
+      bestFormat = Math.min(bestFormat, System.nanoTime() - start);
+      StringBuilder sb = new StringBuilder();
+      start = System.nanoTime();
+      for (double number : numbers) {
+        sb.setLength(0);
+        OutputEncoder.appendFixed(sb, number, 1);
+        length -= sb.length();
+      }
+      bestEncoder = Math.min(bestEncoder, System.nanoTime() - start);
+      if (length != 0) {
+        throw new IllegalStateException("The encoder does not match String.format.");
+      }
+    }
+    System.out.printf(
+        "%%.1f of %d numbers: String.format %.0f ms, OutputEncoder %.0f ms%n",
+        NUMBERS, bestFormat / 1e6, bestEncoder / 1e6);
+
+    for (String file : args) {
+      exportFile(file);
+    }
+  }
+
+  /**
+   * Time the SVG and text export of a file, best of a few runs.
+   *
+   * @param file the animation file.
+   * @throws IOException if the file cannot be read.
+   */
+  private static void exportFile(String file) throws IOException {
+    ICanvas canvas = new ICanvasModel.Builder(file).getCanvas();
+    long bestSvg = Long.MAX_VALUE;
+    long bestText = Long.MAX_VALUE;
+    CountingWriter out = new CountingWriter();
+    for (int run = 0; run < RUNS; run++) {
+      out.count = 0;
+      long start = System.nanoTime();
+      canvas.writeSVG(10, out);
+      bestSvg = Math.min(bestSvg, System.nanoTime() - start);
+      start = System.nanoTime();
+      canvas.toString();
+      bestText = Math.min(bestText, System.nanoTime() - start);
+    }
+    System.out.printf(
+        "%s: SVG %d chars in %.0f ms, text in %.0f ms%n",
+        file, out.count, bestSvg / 1e6, bestText / 1e6);
+  }
+
+  /** Writer that only counts the characters written to it. */
+  private static final class CountingWriter extends Writer {
+    private long count;
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+      this.count += len;
+    }
+
+    @Override
+    public void flush() {
+      // nothing is buffered
+    }
+
+    @Override
+    public void close() {
+      // nothing to release
+    }
+  }
+}
@@ -0,0 +1,126 @@
+import cs5004.animator.model.canvas.ICanvas;
+import cs5004.animator.model.canvas.ICanvasModel;
+import cs5004.animator.model.canvas.PlaybackEvaluator;
+import cs5004.animator.model.shape.Shape;
+import cs5004.animator.model.transformation.Transformation;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark of the seek latency of a PlaybackEvaluator. Random frames are reached in three ways:
+ * by replaying every frame from 0, by evaluating the frame from scratch, and by restoring the
+ * closest checkpoint taken while the animation was played once. The IDE runs it with the project
+ * directory as working directory; from a shell, build the module first and run:
+ *
+ * <pre>
+ *   java -cp out/production/Assignment_6:out/test/Assignment_6 SeekBenchmark [input files...]
+ * </pre>
+ */
+public class SeekBenchmark {
+  private static final int SEEKS = 200;
+  private static final int REPLAYS = 10;
+
+  /**
+   * Run the benchmark.
+   *
+   * @param args the animation files, toh-12 and big-bang-big-crunch by default.
+   * @throws FileNotFoundException if a file is not found.
+   */
+  public static void main(String[] args) throws FileNotFoundException {
+    if (args.length == 0) {
+      args =
+          new String[] {"resources/input/toh-12.txt", "resources/input/big-bang-big-crunch.txt"};
+    }
+    for (String file : args) {
+      ICanvas canvas = new ICanvasModel.Builder(file).getCanvas();
+      int last = (int) lastFrame(canvas);
+      Random random = new Random(42);
+      float[] frames = new float[SEEKS];
+      for (int i = 0; i < SEEKS; i++) {
+        frames[i] = random.nextInt(last + 1);
+      }
+
+      PlaybackEvaluator replay = canvas.createPlaybackEvaluator();
+      replay.setCheckpointPolicy(0, 0);
+      long[] replayTimes = new long[REPLAYS];
+      for (int i = 0; i < REPLAYS; i++) {
+        long start = System.nanoTime();
+        replay.seek(0);
+        for (int frame = 1; frame <= frames[i]; frame++) {
+          replay.advance(frame);
+        }
+        replayTimes[i] = System.nanoTime() - start;
+      }
+
+      PlaybackEvaluator full = canvas.createPlaybackEvaluator();
+      full.setCheckpointPolicy(0, 0);
+      long[] fullTimes = timeSeeks(full, frames);
+
+      PlaybackEvaluator checkpointed = canvas.createPlaybackEvaluator();
+      for (int frame = 0; frame <= last; frame++) {
+        checkpointed.advance(frame);
+      }
+      long[] checkpointTimes = timeSeeks(checkpointed, frames);
+
+      System.out.printf(
+          "%s (%d frames, %d shapes)%n"
+              + "  replay from 0:   median %10.1f us%n"
+              + "  full seek:       median %10.1f us%n"
+              + "  checkpoint seek: median %10.1f us (interval %d)%n",
+          file,
+          last,
+          canvas.getInitialShapes().size(),
+          median(replayTimes) / 1e3,
+          median(fullTimes) / 1e3,
+          median(checkpointTimes) / 1e3,
+          checkpointed.getCheckpointInterval());
+    }
+  }
+
+  /**
+   * Seek to every frame, twice, and return the times of the second round.
+   *
+   * @param evaluator the evaluator to seek with.
+   * @param frames the frames to seek to.
+   * @return the time of every seek, in nanoseconds.
+   */
+  private static long[] timeSeeks(PlaybackEvaluator evaluator, float[] frames) {
+    long[] times = new long[frames.length];
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < frames.length; i++) {
+        long start = System.nanoTime();
+        evaluator.seek(frames[i]);
+        times[i] = System.nanoTime() - start;
+      }
+    }
+    return times;
+  }
+
+  /**
+   * Returns the last frame in which a transformation ends.
+   *
+   * @param canvas the canvas.
+   * @return the last frame of the animation.
+   */
+  static float lastFrame(ICanvas canvas) {
+    float last = 0;
+    for (Shape shape : canvas.getInitialShapes()) {
+      for (Transformation t : shape.getTransformations()) {
+        last = Math.max(last, t.getEndFrame());
+      }
+    }
+    return last;
+  }
+
+  /**
+   * Returns the median of some times.
+   *
+   * @param times the times, which are sorted in place.
+   * @return the median.
+   */
+  static long median(long[] times) {
+    Arrays.sort(times);
+    return times[times.length / 2];
+  }
+}
@@ -1,6 +1,7 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import cs5004.animator.model.shape.Oval;
 import cs5004.animator.model.shape.Point2D;
@@ -174,6 +175,23 @@ public class ShapeTest {
     this.oval.addTransformation(move2);
   }
 
+  @Test
+  public void testAddTransformationChecksEarlierMotions() {
+    for (int t = 0; t < 100; t += 10) {
+      this.oval.addTransformation(new ResizeT(oval, t, t + 10, dimension.BASE, t, t + 10));
+      this.oval.addTransformation(new ResizeT(oval, t, t + 10, dimension.HEIGHT, t, t + 10));
+    }
+    assertEquals(20, this.oval.getTransformations().size());
+    try {
+      this.oval.addTransformation(new ResizeT(oval, 45, 50, dimension.BASE, 0, 10));
+      fail("Overlapping resize was added.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Conflicting Transformation - could not add.", e.getMessage());
+    }
+    this.oval.addTransformation(new MoveT(oval, 45, 50, new Point2D(0, 0), new Point2D(0, 0)));
+    assertEquals(21, this.oval.getTransformations().size());
+  }
+
   @Test
   public void testSetVisibility() {
     assertFalse(this.oval.isVisible());
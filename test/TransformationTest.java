@@ -3,6 +3,7 @@ import org.junit.Test;
 
 import java.awt.Color;
 import java.util.Arrays;
+import java.util.Locale;
 
 import cs5004.animator.model.shape.Point2D;
 import cs5004.animator.model.shape.Rectangle;
@@ -12,6 +13,7 @@ import cs5004.animator.model.transformation.ChangeVisibilityT;
 import cs5004.animator.model.transformation.MoveT;
 import cs5004.animator.model.transformation.ResizeT;
 import cs5004.animator.model.transformation.Transformation;
+import cs5004.animator.util.OutputEncoder;
 
 import static cs5004.animator.model.transformation.dimension.BASE;
 import static cs5004.animator.model.transformation.dimension.HEIGHT;
@@ -283,4 +285,29 @@ public class TransformationTest {
             + "from=\"50.0\" to=\"75.0\" begin=\"5000.0ms\" dur=\"10000.0ms\" fill=\"freeze\"/>",
         this.resize.toSVGString("rect", 1000));
   }
+
+  @Test
+  public void testOutputEncoderMatchesFormat() {
+    double[] values = {
+      0, -0.0, 0.05, -0.04, 0.25, 0.35f, 2.5, -2.5, 0.125, 99.995, 1e17, Double.NaN
+    };
+    Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+    try {
+      for (Locale l : new Locale[] {Locale.US, Locale.GERMANY}) {
+        Locale.setDefault(Locale.Category.FORMAT, l);
+        for (double v : values) {
+          for (int decimals = 0; decimals <= 2; decimals++) {
+            assertEquals(
+                String.format("%." + decimals + "f", v),
+                OutputEncoder.appendFixed(new StringBuilder(), v, decimals).toString());
+          }
+        }
+        assertEquals(
+            String.format("%d", -1234567),
+            OutputEncoder.appendInt(new StringBuilder(), -1234567).toString());
+      }
+    } finally {
+      Locale.setDefault(Locale.Category.FORMAT, locale);
+    }
+  }
 }